@@ -2,25 +2,20 @@ package julius.game.chessengine.ai;
 
 import julius.game.chessengine.board.Move;
 import julius.game.chessengine.board.MoveHelper;
-import julius.game.chessengine.board.MoveList;
+import julius.game.chessengine.cache.PawnHashTable;
 import julius.game.chessengine.engine.Engine;
-import julius.game.chessengine.engine.GameState;
-import julius.game.chessengine.utils.Score;
+import julius.game.chessengine.engine.SearchPosition;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
-import static julius.game.chessengine.utils.Score.*;
-import static julius.game.chessengine.utils.Score.DRAW;
-
 @Log4j2
 @Component
 public class AI {
@@ -28,17 +23,33 @@ public class AI {
     @Getter
     private final Engine mainEngine;
 
-    public static final double EXIT_FLAG = Double.MAX_VALUE;
-    private static final ConcurrentHashMap<Long, TranspositionTableEntry> transpositionTable = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<Long, CaptureTranspositionTableEntry> captureTranspositionTable = new ConcurrentHashMap<>();
+    public static final int EXIT_FLAG = Integer.MAX_VALUE;
+    static final int INFINITY = Integer.MAX_VALUE - 1; // search bound, never reached by a score
+
+    private static final int DEFAULT_HASH_SIZE_MB = 64;
+    private static final int DEFAULT_SEARCH_THREADS = 1;
+
+    // Swapped as a whole on resize, every worker takes them when a search starts, see SearchWorker#startSearch.
+    // A resize stops the running search and drops the old tables before it allocates the new ones
+    @Getter
+    private volatile TranspositionTable transpositionTable;
+    @Getter
+    private volatile TranspositionTable captureTranspositionTable;
+
+    // The main search decides the move, helpers share its tables (Lazy SMP)
+    private final SearchWorker mainWorker;
+    private volatile SearchWorker[] helperWorkers = new SearchWorker[0];
+    private ExecutorService helperPool;
 
-    private final int[][] killerMoves; // 2D array for killer moves, initialized in the constructor
-    private final int numKillerMoves = 2;
+    @Getter
+    private volatile int searchThreads;
 
     private ScheduledExecutorService scheduler;
     private Thread calculationThread;
 
     private volatile boolean keepCalculating = true;
+    // Ends the calculation thread without ending the autoplay, for a resize of the tables
+    private volatile boolean calculationPaused = false;
 
     private volatile long currentBoardState = -1;
     private volatile long beforeCalculationBoardState = -2;
@@ -54,26 +65,34 @@ public class AI {
     private long lastDepthThresholdAdjustmentTime = 0;
     private final int maxDepth = 18; // Adjust the level of depth according to your requirements
 
+    // Deepest iteration the main search completed in the last search
+    @Getter
+    private volatile int lastSearchDepth = 0;
+
     @Getter
     @Setter
     private long timeLimit; // milliseconds
 
 
     public AI(Engine mainEngine) {
+        this(mainEngine, DEFAULT_HASH_SIZE_MB, false, DEFAULT_SEARCH_THREADS);
+    }
+
+    @Autowired
+    public AI(Engine mainEngine,
+              @Value("${chess.ai.hash.size-mb:" + DEFAULT_HASH_SIZE_MB + "}") int hashSizeInMb,
+              @Value("${chess.ai.hash.off-heap:false}") boolean offHeapHash,
+              @Value("${chess.ai.threads:" + DEFAULT_SEARCH_THREADS + "}") int searchThreads) {
         this.mainEngine = mainEngine;
         this.timeLimit = 50;
-
-        // Initialize the array for killer moves
-        this.killerMoves = new int[maxDepth][numKillerMoves];
-        for (int i = 0; i < maxDepth; i++) {
-            for (int j = 0; j < numKillerMoves; j++) {
-                killerMoves[i][j] = -1; // Initialize with an invalid move
-            }
-        }
+        resizeTranspositionTable(hashSizeInMb, offHeapHash);
+        this.mainWorker = new SearchWorker(this, 0, maxDepth);
+        setSearchThreads(searchThreads);
     }
 
     private void startCalculationThread() {
         keepCalculating = true;
+        calculationPaused = false;
         calculationThread = new Thread(this::calculateLine);
         calculationThread.setName("Simulator");
         calculationThread.start();
@@ -88,6 +107,116 @@ public class AI {
         mainEngine.startNewGame();
         depthThreshold = 1;
         lastDepthThresholdAdjustmentTime = 0;
+        clearTranspositionTables();
+        mainWorker.clearMoveOrdering();
+        for (SearchWorker helper : helperWorkers) {
+            helper.clearMoveOrdering();
+        }
+    }
+
+    /**
+     * Sets the number of threads searching a position: the main search plus {@code searchThreads - 1}
+     * helpers. A search that is already running keeps its helpers until it finishes.
+     */
+    public synchronized void setSearchThreads(int searchThreads) {
+        if (searchThreads < 1) {
+            throw new IllegalArgumentException("At least one search thread is needed, was " + searchThreads);
+        }
+        if (helperPool != null) {
+            helperPool.shutdown(); // running helpers are stopped by their search
+        }
+        SearchWorker[] helpers = new SearchWorker[searchThreads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new SearchWorker(this, i + 1, maxDepth);
+        }
+        helperPool = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Simulator-helper-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.helperWorkers = helpers;
+        this.searchThreads = searchThreads;
+        log.info("Searching with {} thread(s)", searchThreads);
+    }
+
+    /**
+     * Replaces both transposition tables with empty ones. The capture table keeps a quarter of the size.
+     * The calculation of the autoplay is stopped and the old tables are dropped first, so the new tables never
+     * have to fit next to the old ones; the calculation starts again on the new tables. If they can not be
+     * allocated, tables of the old size take their place and the error is thrown.
+     *
+     * @param sizeInMb size of the main table
+     * @param offHeap  whether the tables live in direct memory outside the Java heap
+     */
+    public synchronized void resizeTranspositionTable(int sizeInMb, boolean offHeap) {
+        boolean restartCalculation = pauseCalculation();
+        TranspositionTable old = transpositionTable;
+        transpositionTable = null;
+        captureTranspositionTable = null;
+        releaseWorkerTables();
+        try {
+            createTranspositionTables(sizeInMb, offHeap);
+            log.info("TranspositionTable resized to {} MB ({})", sizeInMb, offHeap ? "off-heap" : "heap");
+        } catch (RuntimeException | OutOfMemoryError e) {
+            if (old != null) {
+                createTranspositionTables(old.getSizeInMb(), old.isOffHeap());
+            }
+            throw e;
+        } finally {
+            if (restartCalculation) {
+                currentBoardState = -1; // the stopped search may not have finished, search the position again
+                startCalculationThread();
+            }
+        }
+    }
+
+    private void createTranspositionTables(int sizeInMb, boolean offHeap) {
+        TranspositionTable main = TranspositionTable.create(sizeInMb, offHeap);
+        TranspositionTable captures = TranspositionTable.create(Math.max(1, sizeInMb / 4), offHeap);
+        transpositionTable = main;
+        captureTranspositionTable = captures;
+    }
+
+    // The workers keep the tables of their last search, they take the new ones when the next search starts
+    private void releaseWorkerTables() {
+        if (mainWorker != null) {
+            mainWorker.releaseTables();
+        }
+        for (SearchWorker helper : helperWorkers) {
+            helper.releaseTables();
+        }
+    }
+
+    /**
+     * Stops the calculation thread and waits for it, without ending the autoplay.
+     *
+     * @return true if the calculation was running and has to be started again
+     */
+    private boolean pauseCalculation() {
+        Thread thread = calculationThread;
+        if (thread == null || !thread.isAlive()) {
+            return false;
+        }
+        calculationPaused = true; // stays set until the next start, the thread ends on its own if the join fails
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Preserve interrupt status
+            log.error("Thread interruption error", e);
+            return false;
+        }
+        return keepCalculating;
+    }
+
+    public void clearTranspositionTables() {
+        transpositionTable.clear();
+        captureTranspositionTable.clear();
     }
 
     public void stopCalculation() {
@@ -158,7 +287,7 @@ public class AI {
 
     private void calculateLine() {
         log.debug("keepCalculating: {}, interrupted: {}", keepCalculating, Thread.currentThread().isInterrupted());
-        while (keepCalculating && !Thread.currentThread().isInterrupted()) {
+        while (keepCalculating && !calculationPaused && !Thread.currentThread().isInterrupted()) {
             if (positionChanged()) {
                 currentBoardState = mainEngine.getBoardStateHash();
                 beforeCalculationBoardState = mainEngine.getBoardStateHash();
@@ -168,500 +297,232 @@ public class AI {
     }
 
     private void performCalculation() {
-        log.debug(" --- TranspositionTable[{}] --- ", transpositionTable.size());
-        Engine simulatorEngine = mainEngine.createSimulation();
-        long boardStateHash = simulatorEngine.getBoardStateHash();
+        log.debug(" --- TranspositionTable[{} MB] --- ", transpositionTable.getSizeInMb());
+        SearchPosition position = mainEngine.createSearchPosition();
+        long boardStateHash = position.getBoardStateHash();
         log.debug("boardStateBeforeCalculation {}, currentBoardState {}", beforeCalculationBoardState, currentBoardState);
 
         // Perform calculation only if the board state has actually changed
-        boolean isWhite = simulatorEngine.whitesTurn();
         long startTime = System.currentTimeMillis();
-        calculateBestMove(simulatorEngine, boardStateHash, isWhite, startTime);
+        calculateBestMove(position, boardStateHash, startTime);
 
     }
 
 
-    private void calculateBestMove(Engine simulatorEngine, long boardStateHash, boolean isWhite, long startTime) {
-        double bestScore = isWhite ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    private void calculateBestMove(SearchPosition position, long boardStateHash, long startTime) {
         int bestMove = mainEngine.getOpeningBook().getRandomMoveForBoardStateHash(boardStateHash); // if none found returns -1
         if (bestMove != -1) {
             currentBestMove = bestMove;
             return;
         }
 
+        MoveAndScore best = null;
         try {
-            for (int currentDepth = depthThreshold; currentDepth <= maxDepth; currentDepth++) {
-                if (shouldStopCalculating(startTime)) {
-                    break;
-                }
-
-                MoveAndScore moveAndScore = getBestMove(simulatorEngine, isWhite, currentDepth, startTime, timeLimit);
-                if (moveAndScore != null && isNewBestMove(moveAndScore, bestScore, isWhite)) {
-                    bestScore = moveAndScore.score;
-                    bestMove = moveAndScore.move;
-                    updateTranspositionTable(boardStateHash, moveAndScore, currentDepth);
-                }
-            }
+            best = searchIteratively(position, boardStateHash, startTime, timeLimit, maxDepth);
         } finally {
-            if (bestMove != -1) {
-                currentBestMove = bestMove;
+            if (best != null) {
+                currentBestMove = best.move;
             } else {
                 depthThreshold--;
             }
-            fillCalculatedLine(simulatorEngine); // Ensure this is always called at the end
+            fillCalculatedLine(position); // Ensure this is always called at the end
         }
     }
 
-    private boolean shouldStopCalculating(long startTime) {
-        return positionChanged() || timeLimitExceeded(startTime) || Thread.interrupted();
+    /**
+     * Searches the position of the main engine to a fixed depth on the calling thread, without time limit
+     * and opening book. Must not be used while autoplay is calculating. Used to measure time-to-depth.
+     */
+    public MoveAndScore searchToDepth(int depth) {
+        return searchMainEngine(Long.MAX_VALUE, Math.min(depth, maxDepth));
     }
 
-    private void fillCalculatedLine(Engine simulation) {
-        long currentBoardHash = simulation.getBoardStateHash();
-        List<MoveAndScore> newCalculatedLine = new LinkedList<>();
-        Set<Long> seenBoardHashes = new HashSet<>();
-        int movesPerformed = 0; // Counter for the number of moves performed
-
-        while (transpositionTable.containsKey(currentBoardHash)) {
-            TranspositionTableEntry entry = transpositionTable.get(currentBoardHash);
-            if (entry.bestMove == -1 || !seenBoardHashes.add(currentBoardHash)) {
-                // Exit if no best move is found or repetition is detected
-                break;
-            }
-
-            log.debug("[{}] hash exists and move: {}", currentBoardHash, entry);
-            newCalculatedLine.add(new MoveAndScore(entry.bestMove, entry.score));
-
-            // Perform the move and increment the counter
-            simulation.performMove(entry.bestMove);
-            movesPerformed++;
-            currentBoardHash = simulation.getBoardStateHash();
-        }
-
-        // Undo the moves in reverse order
-        for (int i = 0; i < movesPerformed; i++) {
-            simulation.undoLastMove();
-        }
-
-        this.calculatedLine = new ArrayList<>(newCalculatedLine);
-
-        log.debug("Move Line: {}", newCalculatedLine.stream()
-                .map(m -> Move.convertIntToMove(m.move).toString())
-                .collect(Collectors.joining(", ")));
-        log.debug("");
+    /**
+     * Like {@link #searchToDepth(int)}, but searches as deep as it gets within the time limit.
+     * Used to measure the depth reached in a fixed time.
+     */
+    public MoveAndScore searchForTime(long timeLimitInMs) {
+        return searchMainEngine(timeLimitInMs, maxDepth);
     }
 
-
-    private MoveAndScore getBestMove(Engine simulatorEngine, boolean isWhitesTurn, int depth, long startTime, long timeLimit) {
-        double alpha = Double.NEGATIVE_INFINITY;
-        double beta = Double.POSITIVE_INFINITY;
-        int bestMove = -1; // Use an integer to represent the best move
-        double bestScore = isWhitesTurn ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
-
-        ArrayList<Integer> sortedMoves = sortMovesByEfficiency(simulatorEngine.getAllLegalMoves(), simulatorEngine, isWhitesTurn, depth, startTime, timeLimit);
-
-        for (int moveInt : sortedMoves) {
-
-            // Time check at the beginning of each loop iteration
-            if (System.currentTimeMillis() - startTime > timeLimit) {
-                break;
-            }
-
-            simulatorEngine.performMove(moveInt); // Perform move using its integer representation
-            double score;
-
-            if (simulatorEngine.getGameState().isInStateCheckMate()) {
-                score = isWhitesTurn ? (CHECKMATE - depth) : -(CHECKMATE - depth);
-            } else if (simulatorEngine.getGameState().isInStateDraw()) {
-                score = 0;
-            } else {
-                score = alphaBeta(simulatorEngine, depth - 1, alpha, beta, !isWhitesTurn, startTime, timeLimit);
-                // Check for time limit exceeded after alphaBeta call
-                if (score == EXIT_FLAG || positionChanged()) {
-                    log.info("best Position changed");
-                    simulatorEngine.undoLastMove(); // Undo move using its integer representation
-                    break;
-                }
-            }
-
-            simulatorEngine.undoLastMove(); // Undo move using its integer representation
-
-            // Check if the current move leads to a better score
-            if (isBetterScore(isWhitesTurn, score, bestScore)) {
-                bestScore = score;
-                bestMove = moveInt; // Store the best move as an integer
-            }
-        }
-
-        return bestMove != -1 ? new MoveAndScore(bestMove, bestScore) : null; // Return the best move and score
+    private MoveAndScore searchMainEngine(long timeLimitInMs, int depthLimit) {
+        SearchPosition position = mainEngine.createSearchPosition();
+        long boardStateHash = position.getBoardStateHash();
+        currentBoardState = boardStateHash;
+        beforeCalculationBoardState = boardStateHash;
+        return searchIteratively(position, boardStateHash, System.currentTimeMillis(), timeLimitInMs, depthLimit);
     }
 
     /**
-     * *
-     * 5rkr/pp2Rp2/1b1p1Pb1/3P2Q1/2n3P1/2p5/P4P2/4R1K1 w - - 1 0
-     * *
+     * @return nodes visited by all search threads during the last search
      */
-    private double alphaBeta(Engine simulatorEngine, int depth, double alpha, double beta, boolean isWhite, long startTime, long timeLimit) {
-        log.debug(" ------------------------- {} ------------------------- ", depth);
-        // Check for time limit exceeded
-        if (System.currentTimeMillis() - startTime > timeLimit) {
-            return EXIT_FLAG;
+    public long getLastSearchNodeCount() {
+        long nodes = mainWorker.getNodeCount();
+        for (SearchWorker helper : helperWorkers) {
+            nodes += helper.getNodeCount();
         }
+        return nodes;
+    }
 
-        long boardHash = simulatorEngine.getBoardStateHash();
-
-        if (simulatorEngine.getGameState().isInStateDraw()) {
-            return 0;
-        }
-
-        if (depth == 0 || simulatorEngine.getGameState().isGameOver()) {
-            double eval = evaluateBoard(simulatorEngine, isWhite, startTime, timeLimit);
-            log.trace("eval {}, alpha {}, beta {}, depth: {}, startTime {}, timeLimit {}, isWhite {}", eval, alpha, beta, depth, System.currentTimeMillis() - startTime, timeLimit, isWhite);
-            if (!isWhite) {
-                eval = -eval;
-            }
-            return eval;
-        }
-
-        TranspositionTableEntry entry = transpositionTable.get(boardHash);
-
-        if (entry != null && entry.depth > depth) {
-            if (entry.nodeType == NodeType.EXACT) {
-                return entry.score;
-            }
-            if (entry.nodeType == NodeType.LOWERBOUND && entry.score > alpha) {
-                alpha = entry.score;
-            } else if (entry.nodeType == NodeType.UPPERBOUND && entry.score < beta) {
-                beta = entry.score;
-            }
-            if (alpha >= beta) {
-                return entry.score;
-            }
-        }
-
-
-        double alphaOriginal = alpha; // Store the original alpha value
-        double betaOriginal = beta;   // Store the original beta value
-
-        MoveList moves = simulatorEngine.getAllLegalMoves();
-
-        if (isWhite) {
-            return maximizer(simulatorEngine, depth, alpha, beta, isWhite, boardHash, alphaOriginal, moves, startTime, timeLimit);
-        } else {
-            return minimizer(simulatorEngine, depth, alpha, beta, isWhite, boardHash, betaOriginal, moves, startTime, timeLimit);
+    /**
+     * @return the pawn hash tables of all search threads, the main search first
+     */
+    public List<PawnHashTable> getPawnHashTables() {
+        List<PawnHashTable> tables = new ArrayList<>();
+        tables.add(mainWorker.getPawnHashTable());
+        for (SearchWorker helper : helperWorkers) {
+            tables.add(helper.getPawnHashTable());
         }
+        return tables;
     }
 
-    private double maximizer(Engine simulatorEngine, int depth, double alpha, double beta, boolean isWhite, long boardHash, double alphaOriginal, MoveList moves, long startTime, long timeLimit) {
-        long start = System.nanoTime(); // Start timing
-        double maxEval = Double.NEGATIVE_INFINITY;
-        int bestMoveAtThisNode = -1; // Variable to track the best move at this node
-
-        for (int move : sortMovesByEfficiency(moves, simulatorEngine, isWhite, depth, startTime, timeLimit)) {
-            simulatorEngine.performMove(move);
-            long newBoardHash = simulatorEngine.getBoardStateHash();
-
-            double eval;
-            TranspositionTableEntry entry = transpositionTable.get(newBoardHash);
-
-            if (entry != null && entry.depth >= depth) {
-                eval = entry.score; // Use the score from the transposition table
-            } else {
-                eval = alphaBeta(simulatorEngine, depth - 1, alpha, beta, !isWhite, startTime, timeLimit);
-
-                if (eval == EXIT_FLAG || positionChanged()) {
-                    // If time limit exceeded, exit the loop
-                    simulatorEngine.undoLastMove();
-                    log.info("maxi Position changed");
-                    return EXIT_FLAG;
+    /**
+     * Iterative deepening of the main search, every iteration searches with an aspiration window around the
+     * score of the previous one. The helpers run their own iterative deepening on copies of the position while
+     * the main search is running and are stopped as soon as it returns.
+     */
+    private MoveAndScore searchIteratively(SearchPosition position, long boardStateHash, long startTime, long timeLimit, int depthLimit) {
+        MoveAndScore best = null;
+        MoveAndScore previous = null;
+        lastSearchDepth = 0;
+
+        transpositionTable.newSearch();
+        captureTranspositionTable.newSearch();
+        mainWorker.startSearch();
+        position.usePawnHashTable(mainWorker.getPawnHashTable());
+
+        SearchWorker[] helpers = helperWorkers;
+        List<Future<?>> helperSearches = startHelpers(helpers, position, startTime, timeLimit, depthLimit);
+        try {
+            for (int currentDepth = depthThreshold; currentDepth <= depthLimit; currentDepth++) {
+                if (shouldStopCalculating(startTime, timeLimit)) {
+                    break;
                 }
-            }
-
-            log.debug("DEPTH: " + depth + " --- " + Move.convertIntToMove(move));
-            long endTime = System.nanoTime();
-            log.debug("DEPTH: " + depth);
-            log.debug("--> [+] Time taken for maximizer: {} ms", (endTime - start) / 1e6);
-
-            simulatorEngine.undoLastMove();
-
-            if (eval > maxEval) { // Found a better evaluation
-                maxEval = eval;
-                bestMoveAtThisNode = move; // Update the best move
-            }
 
-            alpha = Math.max(alpha, eval);
-            if (beta <= alpha) {
-                updateKillerMoves(depth, move);
-                log.debug(" Maxi New Killer Move is {}", Move.convertIntToMove(move));
-                break; // Alpha-beta pruning
+                mainWorker.ageHistory();
+                MoveAndScore moveAndScore = mainWorker.searchWithAspirationWindow(position, currentDepth, previous, startTime, timeLimit);
+                if (moveAndScore != null) {
+                    previous = moveAndScore;
+                    // A deeper iteration that finished in time replaces the move whatever its score, it may have
+                    // found the refutation; one that ran out of time only stands in while there is no move at all
+                    boolean finished = System.currentTimeMillis() - startTime <= timeLimit && !positionChanged();
+                    if (finished || best == null) {
+                        best = moveAndScore;
+                    }
+                    if (finished) {
+                        lastSearchDepth = currentDepth;
+                        updateTranspositionTable(boardStateHash, moveAndScore, currentDepth);
+                    }
+                }
             }
+        } finally {
+            stopHelpers(helpers, helperSearches);
         }
-
-        // After the for loop, update the transposition table with the best move
-        TranspositionTableEntry existingEntry = transpositionTable.get(boardHash);
-        boolean shouldUpdate = existingEntry == null || existingEntry.depth < depth;
-
-        if (maxEval <= alphaOriginal && shouldUpdate) {
-            transpositionTable.put(boardHash, new TranspositionTableEntry(maxEval, depth, NodeType.UPPERBOUND, bestMoveAtThisNode));
-        } else if (maxEval >= beta && shouldUpdate) {
-            transpositionTable.put(boardHash, new TranspositionTableEntry(maxEval, depth, NodeType.LOWERBOUND, bestMoveAtThisNode));
-        } else if (shouldUpdate) {
-            transpositionTable.put(boardHash, new TranspositionTableEntry(maxEval, depth, NodeType.EXACT, bestMoveAtThisNode));
-        }
-
-        return maxEval;
+        return best;
     }
 
-
-    private double minimizer(Engine simulatorEngine, int depth, double alpha, double beta,
-                             boolean isWhite, long boardHash,
-                             double betaOriginal, MoveList moves, long startTime,
-                             long timeLimit) {
-        long start = System.nanoTime(); // Start timing
-        double minEval = Double.POSITIVE_INFINITY;
-        int bestMoveAtThisNode = -1; // Track the best move at this node
-
-        for (int move : sortMovesByEfficiency(moves, simulatorEngine, isWhite, depth, startTime, timeLimit)) {
-            simulatorEngine.performMove(move);
-            long newBoardHash = simulatorEngine.getBoardStateHash();
-            double eval;
-            TranspositionTableEntry entry = transpositionTable.get(newBoardHash);
-
-            if (entry != null && entry.depth >= depth) {
-                eval = entry.score;
-            } else {
-                eval = alphaBeta(simulatorEngine, depth - 1, alpha, beta, !isWhite, startTime, timeLimit);
-
-                if (eval == EXIT_FLAG || positionChanged()) {
-                    log.info("mini Position changed");
-                    simulatorEngine.undoLastMove();
-                    return EXIT_FLAG;
-                }
-            }
-
-            long endTime = System.nanoTime();
-            log.debug("DEPTH: " + depth + " --- " + Move.convertIntToMove(move));
-            log.debug("<-- [-] Time taken for minimizer: {} ms", (endTime - start) / 1e6);
-
-            simulatorEngine.undoLastMove();
-
-            if (eval < minEval) {
-                minEval = eval;
-                bestMoveAtThisNode = move; // Update the best move at this node
-            }
-
-            beta = Math.min(beta, eval);
-            if (alpha >= beta) {
-                updateKillerMoves(depth, move);
-                log.debug("Mini New Killer Move is {}", Move.convertIntToMove(move));
-                break;
+    private List<Future<?>> startHelpers(SearchWorker[] helpers, SearchPosition position, long startTime, long timeLimit, int depthLimit) {
+        List<Future<?>> helperSearches = new ArrayList<>(helpers.length);
+        ExecutorService pool = helperPool;
+        if (pool == null || pool.isShutdown()) {
+            return helperSearches;
+        }
+        int startDepth = depthThreshold;
+        for (SearchWorker helper : helpers) {
+            // Copy on this thread, before the main search starts moving pieces on the position
+            SearchPosition helperPosition = new SearchPosition(position);
+            helperPosition.usePawnHashTable(helper.getPawnHashTable());
+            int depthOffset = helper.getId() % 2; // every other helper runs one ply ahead of the main search
+            helper.startSearch();
+            try {
+                helperSearches.add(pool.submit(() -> helper.searchAsHelper(helperPosition, startDepth, depthOffset, depthLimit, startTime, timeLimit)));
+            } catch (RejectedExecutionException e) {
+                log.debug("Helper pool was replaced, searching without helper {}", helper.getId());
             }
         }
-
-        TranspositionTableEntry existingEntry = transpositionTable.get(boardHash);
-        boolean shouldUpdate = existingEntry == null || existingEntry.depth < depth;
-
-        if (minEval >= betaOriginal && shouldUpdate) {
-            transpositionTable.put(boardHash, new TranspositionTableEntry(minEval, depth, NodeType.LOWERBOUND, bestMoveAtThisNode));
-        } else if (minEval <= alpha && shouldUpdate) {
-            transpositionTable.put(boardHash, new TranspositionTableEntry(minEval, depth, NodeType.UPPERBOUND, bestMoveAtThisNode));
-        } else if (shouldUpdate) {
-            transpositionTable.put(boardHash, new TranspositionTableEntry(minEval, depth, NodeType.EXACT, bestMoveAtThisNode));
-        }
-
-        return minEval;
+        return helperSearches;
     }
 
-
-    private ArrayList<Integer> sortMovesByEfficiency(MoveList moves, Engine simulatorEngine, boolean isWhite, int currentDepth, long startTime, long timeLimit) {
-        Map<Integer, Double> scoreCache = new HashMap<>();
-        PriorityQueue<Integer> sortedMoves = new PriorityQueue<>(
-                Comparator.comparingDouble((Integer moveInt) -> {
-                    // Check if the move is a killer move and prioritize it
-
-                    for (int killerMove : killerMoves[currentDepth]) {
-                        if (moveInt == killerMove) {
-                            log.debug("KILLER_MOVE_SCORE" + KILLER_MOVE_SCORE);
-                            return KILLER_MOVE_SCORE; //adjust as needed
-                        }
-                    }
-
-                    int mvvLvaScore = calculateMvvLvaScore(moveInt);
-                    if (mvvLvaScore != 0) {
-                        return mvvLvaScore; // Prioritize based on MVV-LVA score
-                    }
-
-                    if (scoreCache.containsKey(moveInt)) {
-                        return scoreCache.get(moveInt);
-                    }
-
-                    // If not a killer move, proceed with existing scoring method
-                    Long boardStateHash = simulatorEngine.getBoardStateHashAfterMove(moveInt);
-                    TranspositionTableEntry entry = transpositionTable.get(boardStateHash);
-                    if (entry != null && entry.depth >= currentDepth) {
-                        return isWhite ? entry.score : -entry.score;
-                    } else {
-                        simulatorEngine.performMove(moveInt);
-                        double score = evaluateBoard(simulatorEngine, isWhite, startTime, timeLimit);
-                        simulatorEngine.undoLastMove();
-                        scoreCache.put(moveInt, score);
-                        return score;
-                    }
-                }).reversed()
-        );
-
-        for (int i = 0; i < moves.size(); i++) {
-            sortedMoves.add(moves.getMove(i));
+    private void stopHelpers(SearchWorker[] helpers, List<Future<?>> helperSearches) {
+        for (SearchWorker helper : helpers) {
+            helper.stop();
         }
-
-        ArrayList<Integer> sortedMoveList = new ArrayList<>();
-        while (!sortedMoves.isEmpty()) {
-            sortedMoveList.add(sortedMoves.poll());
+        for (Future<?> helperSearch : helperSearches) {
+            try {
+                helperSearch.get();
+            } catch (ExecutionException e) {
+                log.error("Helper search failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // helpers stop on their own, no need to wait
+                return;
+            }
         }
-
-        return sortedMoveList;
     }
 
-    public double evaluateBoard(Engine simulatorEngine, boolean isWhitesTurn, long startTime, long timeLimit) {
-        if (simulatorEngine.getGameState().isInStateCheckMate()) {
-            return CHECKMATE;
-        }
-
-        if (simulatorEngine.getGameState().isInStateDraw()) {
-            return DRAW;
-        }
-
-        double alpha = Double.NEGATIVE_INFINITY;
-        double beta = Double.POSITIVE_INFINITY;
-
-        long boardStateHash = simulatorEngine.getBoardStateHash();
-        CaptureTranspositionTableEntry entry = captureTranspositionTable.get(boardStateHash);
-
-        // Check if the entry exists and is relevant for the current search
-        if (entry != null && entry.isWhite() == isWhitesTurn) {
-            return entry.getScore();
-        }
-
-        double score = quiescenceSearch(simulatorEngine, isWhitesTurn, alpha, beta, startTime, timeLimit, 0);
-        captureTranspositionTable.put(boardStateHash, new CaptureTranspositionTableEntry(score, isWhitesTurn));
-
-        return score;
+    /**
+     * Evaluates the position in millipawns with the quiescence search. Runs on a worker of its own that only shares
+     * the transposition tables, so it may be called while the autoplay is searching.
+     */
+    public int evaluateBoard(Engine engine, boolean isWhitesTurn, long startTime, long timeLimit) {
+        SearchWorker worker = new SearchWorker(this, 0, maxDepth);
+        worker.startSearch();
+        SearchPosition position = engine.createSearchPosition();
+        position.usePawnHashTable(worker.getPawnHashTable());
+        return worker.evaluateBoard(position, isWhitesTurn, 0, startTime, timeLimit);
     }
 
-    private double quiescenceSearch(Engine simulatorEngine, boolean isWhitesTurn, double alpha, double beta, long startTime, long timeLimit, int depth) {
-        if (System.currentTimeMillis() - startTime > timeLimit) {
-            log.debug("timeout");
-            return AI.EXIT_FLAG; // Timeout
-        }
-
-        double standPat = evaluateStaticPosition(simulatorEngine.getGameState(), isWhitesTurn, depth);
-        if (standPat >= beta) {
-            return beta; // Fail-hard beta cutoff
-        }
-        if (alpha < standPat) {
-            alpha = standPat; // Delta pruning
-        }
+    private boolean shouldStopCalculating(long startTime, long timeLimit) {
+        return positionChanged() || System.currentTimeMillis() - startTime > timeLimit || Thread.interrupted();
+    }
 
-        MoveList moves = getPossibleCapturesOrPromotions(simulatorEngine);
-        for (int i = 0; i < moves.size(); i++) {
-            simulatorEngine.performMove(moves.getMove(i));
-            double score = -quiescenceSearch(simulatorEngine, !isWhitesTurn, -beta, -alpha, startTime, timeLimit, ++depth);
-            simulatorEngine.undoLastMove();
+    private void fillCalculatedLine(SearchPosition simulation) {
+        long currentBoardHash = simulation.getBoardStateHash();
+        List<MoveAndScore> newCalculatedLine = new LinkedList<>();
+        Set<Long> seenBoardHashes = new HashSet<>();
+        int movesPerformed = 0; // Counter for the number of moves performed
 
-            if (score >= beta) {
-                return beta; // Beta cutoff
-            }
-            if (score > alpha) {
-                alpha = score; // Found a better move
+        TranspositionTableEntry entry = new TranspositionTableEntry();
+        while (transpositionTable.probe(currentBoardHash, entry)) {
+            // The table keeps compact moves, a colliding entry can name a move that is not legal here
+            int move = entry.bestMove != -1 ? simulation.findLegalMove(entry.bestMove) : -1;
+            if (move == -1 || !seenBoardHashes.add(currentBoardHash)) {
+                // Exit if no best move is found or repetition is detected
+                break;
             }
-        }
-        return alpha; // Best score in the subtree
-    }
 
-    private double evaluateStaticPosition(GameState gameState, boolean isWhitesTurn, int depth) {
+            log.debug("[{}] hash exists and move: {}", currentBoardHash, entry);
+            // The table scores for the side to move, the line is shown from white's perspective
+            newCalculatedLine.add(new MoveAndScore(move, simulation.whitesTurn() ? entry.score : -entry.score));
 
-        if (gameState.isInStateCheckMate()) {
-            log.debug("Checkmate found");
-            return CHECKMATE - depth; // -depth to allow faster checkmates
-        }
-        if (gameState.isInStateDraw()) {
-            log.debug("DRAW");
-            return DRAW;
+            // Perform the move and increment the counter
+            simulation.performMove(move);
+            movesPerformed++;
+            currentBoardHash = simulation.getBoardStateHash();
         }
-        double scoreDifference = gameState.getScore().getScoreDifference();
 
-        log.debug("Evaluate static position score {}, {} ", isWhitesTurn ? scoreDifference : -scoreDifference, isWhitesTurn ? "WHITE" : "BLACK");
-        return isWhitesTurn ? scoreDifference : -scoreDifference;
-    }
-
-    private MoveList getPossibleCapturesOrPromotions(Engine simulatorEngine) {
-        MoveList allLegalMoves = simulatorEngine.getAllLegalMoves();
-        MoveList capturesAndPromotions = new MoveList();
-        for (int i = 0; i < allLegalMoves.size(); i++) {
-            int m = allLegalMoves.getMove(i);
-            if (MoveHelper.isCapture(m) || MoveHelper.isPawnPromotionMove(m)) {
-                capturesAndPromotions.add(m);
-            }
+        // Undo the moves in reverse order
+        for (int i = 0; i < movesPerformed; i++) {
+            simulation.undoLastMove();
         }
 
-        return capturesAndPromotions;
-    }
-
+        this.calculatedLine = new ArrayList<>(newCalculatedLine);
 
-    private boolean isNewBestMove(MoveAndScore moveAndScore, double currentBestScore, boolean isWhite) {
-        double score = moveAndScore.score;
-        return moveAndScore.move != -1 && (isWhite ? score > currentBestScore : score < currentBestScore);
+        log.debug("Move Line: {}", newCalculatedLine.stream()
+                .map(m -> Move.convertIntToMove(m.move).toString())
+                .collect(Collectors.joining(", ")));
+        log.debug("");
     }
 
-    private boolean timeLimitExceeded(long startTime) {
-        return System.currentTimeMillis() - startTime > timeLimit;
-    }
 
     private void updateTranspositionTable(long boardStateHash, MoveAndScore moveAndScore, int currentDepth) {
-        TranspositionTableEntry existingEntry = transpositionTable.get(boardStateHash);
-        if (existingEntry == null || existingEntry.depth < currentDepth) {
-            transpositionTable.put(boardStateHash, new TranspositionTableEntry(moveAndScore.score, currentDepth, NodeType.EXACT, moveAndScore.move));
-        }
+        transpositionTable.store(boardStateHash, moveAndScore.score, currentDepth, NodeType.EXACT, MoveHelper.toCompactMove(moveAndScore.move));
     }
 
-    private synchronized boolean positionChanged() {
+    boolean positionChanged() {
         return currentBoardState != beforeCalculationBoardState;
     }
 
-    /**
-     * Checks if the current score is better than the best score based on the player's color.
-     */
-    private boolean isBetterScore(boolean isWhite, double score, double bestScore) {
-        return isWhite ? score > bestScore : score < bestScore;
-    }
-
     public void updateBoardStateHash() {
         currentBoardState = mainEngine.getBoardStateHash();
     }
-
-    private void updateKillerMoves(int depth, int move) {
-        int numKillerMoves = killerMoves[depth].length; // Get the number of killer moves for this depth
-
-        // Check if the move is already in the killer moves array
-        for (int i = 0; i < numKillerMoves; i++) {
-            if (killerMoves[depth][i] == move) {
-                return; // If move is already a killer move, no need to update
-            }
-        }
-
-        // Shift existing killer moves down and insert the new move at the beginning
-        for (int i = numKillerMoves - 1; i > 0; i--) {
-            killerMoves[depth][i] = killerMoves[depth][i - 1];
-        }
-        killerMoves[depth][0] = move; // Insert new killer move at the top
-    }
-
-    private int calculateMvvLvaScore(int move) {
-        if (!MoveHelper.isCapture(move)) {
-            return 0; // Not a capture move
-        }
-        int victimValue = Score.getPieceValue(MoveHelper.deriveCapturedPieceTypeBits(move));
-        int attackerValue = Score.getPieceValue(MoveHelper.derivePieceTypeBits(move));
-        return victimValue - attackerValue;
-    }
 }
@@ -0,0 +1,39 @@
+package julius.game.chessengine.ai;
+
+import java.util.Arrays;
+
+/**
+ * Transposition table stored in a single {@code long[]} on the Java heap.
+ */
+public class HeapTranspositionTable extends TranspositionTable {
+
+    private final long[] table;
+
+    public HeapTranspositionTable(int sizeInMb) {
+        super(sizeInMb);
+        if (capacityInLongs() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Transposition table of " + sizeInMb + " MB is too large for the heap table");
+        }
+        this.table = new long[(int) capacityInLongs()];
+    }
+
+    @Override
+    protected long get(long index) {
+        return table[(int) index];
+    }
+
+    @Override
+    protected void set(long index, long value) {
+        table[(int) index] = value;
+    }
+
+    @Override
+    protected void fillWithZero() {
+        Arrays.fill(table, 0L);
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return false;
+    }
+}
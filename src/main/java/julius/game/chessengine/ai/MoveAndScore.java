@@ -6,9 +6,9 @@ import lombok.Getter;
 public class MoveAndScore {
 
     int move;
-    double score;
+    int score; // millipawns, for the side to move in the searched position
 
-    MoveAndScore(int move, double score) {
+    MoveAndScore(int move, int score) {
         this.move = move;
         this.score = score;
     }
@@ -0,0 +1,62 @@
+package julius.game.chessengine.ai;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Transposition table stored in direct buffers outside the Java heap, so a table of several GB neither
+ * counts against {@code -Xmx} nor has to be scanned by the garbage collector.
+ * <p>
+ * A single direct buffer is limited to 2 GB, so the table is split into chunks of 1 GB. Buckets never
+ * cross a chunk border. Direct memory is capped by {@code -XX:MaxDirectMemorySize}, which defaults to the
+ * maximum heap size, so large tables need that flag raised. The memory of a dropped table is returned
+ * once its buffers are garbage collected.
+ */
+public class OffHeapTranspositionTable extends TranspositionTable {
+
+    private static final int CHUNK_SHIFT = 27; // 2^27 longs = 1 GB per chunk
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final LongBuffer[] chunks;
+
+    public OffHeapTranspositionTable(int sizeInMb) {
+        super(sizeInMb);
+        long capacity = capacityInLongs();
+        int chunkCount = (int) ((capacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.chunks = new LongBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long longs = Math.min(capacity - ((long) i << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+            chunks[i] = ByteBuffer.allocateDirect((int) (longs * Long.BYTES))
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        }
+    }
+
+    @Override
+    protected long get(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    @Override
+    protected void set(long index, long value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    @Override
+    protected void fillWithZero() {
+        long[] zeros = new long[8192];
+        for (LongBuffer chunk : chunks) {
+            LongBuffer writer = chunk.duplicate();
+            writer.clear();
+            while (writer.hasRemaining()) {
+                writer.put(zeros, 0, Math.min(zeros.length, writer.remaining()));
+            }
+        }
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+}
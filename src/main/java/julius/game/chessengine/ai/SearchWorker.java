@@ -0,0 +1,732 @@
+package julius.game.chessengine.ai;
+
+import julius.game.chessengine.board.Move;
+import julius.game.chessengine.board.MoveHelper;
+import julius.game.chessengine.board.MoveStack;
+import julius.game.chessengine.cache.PawnHashTable;
+import julius.game.chessengine.engine.SearchPosition;
+import julius.game.chessengine.utils.Score;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Arrays;
+
+import static julius.game.chessengine.utils.Score.*;
+
+/**
+ * One search thread. Every worker owns its search position, move ordering tables and probe buffers, while the
+ * transposition tables are shared through the {@link AI}. Worker 0 is the main search, the others are
+ * Lazy SMP helpers that only fill the shared tables.
+ */
+@Log4j2
+class SearchWorker {
+
+    private static final long BLACK_PERSPECTIVE_KEY = 0x9E3779B97F4A7C15L;
+
+    // Half width of the aspiration window in millipawns, the search falls back to the full window beyond the max
+    private static final int ASPIRATION_WINDOW = 250;
+    private static final int MAX_ASPIRATION_WINDOW = 4000;
+
+    // Move ordering: hash move, winning captures and promotions, killer moves, countermove, quiet moves by
+    // history, losing captures
+    private static final int HASH_MOVE_SCORE = 4 * KILLER_MOVE_SCORE;
+    private static final int WINNING_CAPTURE_SCORE = 2 * KILLER_MOVE_SCORE;
+    private static final int COUNTER_MOVE_SCORE = KILLER_MOVE_SCORE - 1;
+    private static final int LOSING_CAPTURE_SCORE = -WINNING_CAPTURE_SCORE;
+
+    // History scores saturate at this value, a capture history is worth a pawn at most next to MVV-LVA
+    private static final int MAX_HISTORY = 16384;
+    private static final int CAPTURE_HISTORY_DIVISOR = 16;
+
+    // Captures in the quiescence search that cannot bring the static evaluation back up to alpha even with this
+    // margin on top of the captured piece are skipped
+    private static final int DELTA_MARGIN = 2000;
+
+    // Plies the quiescence search may add to the full width search, more than any capture sequence needs
+    private static final int MAX_QUIESCENCE_PLY = 64;
+
+    // Entries of the pawn hash table of every worker, pawn structures repeat far more often than positions
+    private static final int PAWN_HASH_TABLE_ENTRIES = 1 << 14;
+
+    // Null move pruning searches the null move this many plies shallower, one more from NULL_MOVE_DEEP_DEPTH on
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    private static final int NULL_MOVE_REDUCTION = 2;
+    private static final int NULL_MOVE_DEEP_DEPTH = 7;
+
+    // Late move reductions for quiet moves searched after the first LMR_MIN_MOVE_NUMBER moves of a node
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_MIN_MOVE_NUMBER = 3;
+    private static final int[][] LMR_REDUCTIONS = new int[64][64];
+
+    static {
+        for (int depth = 1; depth < 64; depth++) {
+            for (int moveNumber = 1; moveNumber < 64; moveNumber++) {
+                LMR_REDUCTIONS[depth][moveNumber] = (int) (0.75 + Math.log(depth) * Math.log(moveNumber) / 2.25);
+            }
+        }
+    }
+
+    private final AI ai;
+
+    @Getter
+    private final int id;
+
+    private final int[][] killerMoves; // 2D array for killer moves, initialized in the constructor
+    private final int numKillerMoves = 2;
+
+    // Butterfly history [side][from][to] and capture history [piece][to][captured piece] of cutoff moves
+    private final int[][][] history = new int[2][64][64];
+    private final int[][][] captureHistory = new int[7][64][7];
+
+    // Quiet move that refuted the previous move, indexed [side][piece][to] of the previous move
+    private final int[][][] counterMoves = new int[2][7][64];
+
+    // Moves and their ordering scores per ply, generated straight into the stack so the search allocates nothing
+    private final MoveStack moveStack;
+
+    // Reused for every probe so the search does not allocate per node
+    private final TranspositionTableEntry probeEntry = new TranspositionTableEntry();
+    private final TranspositionTableEntry captureProbeEntry = new TranspositionTableEntry();
+
+    // Pawn structures of the positions this worker searches, kept across searches
+    @Getter
+    private final PawnHashTable pawnHashTable = new PawnHashTable(PAWN_HASH_TABLE_ENTRIES);
+
+    // Taken from the AI when a search starts, a resize during the search only affects the next one
+    private TranspositionTable transpositionTable;
+    private TranspositionTable captureTranspositionTable;
+
+    private volatile boolean stopped = false;
+
+    @Getter
+    private long nodeCount = 0;
+
+    SearchWorker(AI ai, int id, int maxDepth) {
+        this.ai = ai;
+        this.id = id;
+
+        // Initialize the array for killer moves, indexed by ply up to and including maxDepth
+        this.killerMoves = new int[maxDepth + 1][numKillerMoves];
+        clearMoveOrdering();
+
+        this.moveStack = new MoveStack(maxDepth + MAX_QUIESCENCE_PLY);
+    }
+
+    void clearMoveOrdering() {
+        for (int[] killerMovesAtPly : killerMoves) {
+            Arrays.fill(killerMovesAtPly, -1); // Initialize with an invalid move
+        }
+        for (int side = 0; side < 2; side++) {
+            for (int[] historyFrom : history[side]) {
+                Arrays.fill(historyFrom, 0);
+            }
+            for (int[] counterMovesOfPiece : counterMoves[side]) {
+                Arrays.fill(counterMovesOfPiece, -1);
+            }
+        }
+        for (int[][] captureHistoryOfPiece : captureHistory) {
+            for (int[] captureHistoryTo : captureHistoryOfPiece) {
+                Arrays.fill(captureHistoryTo, 0);
+            }
+        }
+    }
+
+    /**
+     * Halves all history scores, called between iterations so the latest iterations weigh the most.
+     */
+    void ageHistory() {
+        for (int side = 0; side < 2; side++) {
+            for (int[] historyFrom : history[side]) {
+                for (int to = 0; to < 64; to++) {
+                    historyFrom[to] /= 2;
+                }
+            }
+        }
+        for (int[][] captureHistoryOfPiece : captureHistory) {
+            for (int[] captureHistoryTo : captureHistoryOfPiece) {
+                for (int captured = 0; captured < captureHistoryTo.length; captured++) {
+                    captureHistoryTo[captured] /= 2;
+                }
+            }
+        }
+    }
+
+    void startSearch() {
+        transpositionTable = ai.getTranspositionTable();
+        captureTranspositionTable = ai.getCaptureTranspositionTable();
+        nodeCount = 0;
+        stopped = false;
+    }
+
+    // Lets go of the tables of the last search, which must have ended
+    void releaseTables() {
+        transpositionTable = null;
+        captureTranspositionTable = null;
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Lazy SMP helper loop: iterative deepening on its own copy of the position, starting
+     * {@code depthOffset} plies deeper than the main search, until the main search stops it.
+     */
+    void searchAsHelper(SearchPosition position, int startDepth, int depthOffset, int maxDepth, long startTime, long timeLimit) {
+        long boardStateHash = position.getBoardStateHash();
+        MoveAndScore previous = null;
+        for (int currentDepth = startDepth + depthOffset; currentDepth <= maxDepth; currentDepth++) {
+            if (shouldAbort(startTime, timeLimit)) {
+                return;
+            }
+            ageHistory();
+            MoveAndScore moveAndScore = searchWithAspirationWindow(position, currentDepth, previous, startTime, timeLimit);
+            if (moveAndScore != null && !shouldAbort(startTime, timeLimit)) {
+                transpositionTable.store(boardStateHash, moveAndScore.score, currentDepth, NodeType.EXACT, MoveHelper.toCompactMove(moveAndScore.move));
+                previous = moveAndScore;
+            }
+        }
+    }
+
+    private boolean shouldAbort(long startTime, long timeLimit) {
+        return stopped || ai.positionChanged() || System.currentTimeMillis() - startTime > timeLimit;
+    }
+
+    /**
+     * Searches the root with an aspiration window around the score of the previous iteration. A result outside
+     * the window is only a bound, so the window is widened on that side and the depth searched again.
+     *
+     * @param previous result of the previous iteration, null to search with the full window
+     */
+    MoveAndScore searchWithAspirationWindow(SearchPosition position, int depth, MoveAndScore previous, long startTime, long timeLimit) {
+        if (previous == null || Math.abs(previous.score) >= MATE_BOUND) {
+            return getBestMove(position, depth, -AI.INFINITY, AI.INFINITY, startTime, timeLimit);
+        }
+
+        int delta = ASPIRATION_WINDOW;
+        int alpha = previous.score - delta;
+        int beta = previous.score + delta;
+        while (true) {
+            MoveAndScore moveAndScore = getBestMove(position, depth, alpha, beta, startTime, timeLimit);
+            if (moveAndScore == null || shouldAbort(startTime, timeLimit)) {
+                return moveAndScore;
+            }
+
+            delta *= 2;
+            if (moveAndScore.score <= alpha) {
+                alpha = delta > MAX_ASPIRATION_WINDOW ? -AI.INFINITY : moveAndScore.score - delta;
+            } else if (moveAndScore.score >= beta) {
+                beta = delta > MAX_ASPIRATION_WINDOW ? AI.INFINITY : moveAndScore.score + delta;
+            } else {
+                return moveAndScore;
+            }
+            log.debug("Aspiration window missed at depth {}, searching again with ({}, {})", depth, alpha, beta);
+        }
+    }
+
+    /**
+     * Searches all root moves with the window (alpha, beta).
+     *
+     * @return the best move with its score for the side to move, or null if no move was searched in time
+     */
+    MoveAndScore getBestMove(SearchPosition position, int depth, int alpha, int beta, long startTime, long timeLimit) {
+        int bestMove = -1; // Use an integer to represent the best move
+        int bestScore = -AI.INFINITY;
+
+        int hashMove = transpositionTable.probe(position.getBoardStateHash(), probeEntry) ? probeEntry.bestMove : -1;
+        int previousMove = position.getLastMove();
+        int moveCount = scoreMoves(position, 0, hashMove, previousMove);
+
+        for (int i = 0; i < moveCount; i++) {
+            int moveInt = pickNextMove(0, i, moveCount);
+
+            // Time check at the beginning of each loop iteration
+            if (System.currentTimeMillis() - startTime > timeLimit || stopped) {
+                break;
+            }
+
+            position.performMove(moveInt); // Perform move using its integer representation
+            int score = searchChild(position, moveInt, depth, 0, 1, alpha, beta, bestMove == -1, startTime, timeLimit);
+            position.undoLastMove(); // Undo move using its integer representation
+
+            // Check for time limit exceeded after the search
+            if (score == AI.EXIT_FLAG || ai.positionChanged()) {
+                log.info("best Position changed");
+                break;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = moveInt; // Store the best move as an integer
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                break; // fails high, the aspiration window is widened by the caller
+            }
+        }
+
+        return bestMove != -1 ? new MoveAndScore(bestMove, bestScore) : null; // Return the best move and score
+    }
+
+    /**
+     * Negamax principal variation search, scores are from the perspective of the side to move.
+     * <p>
+     * 5rkr/pp2Rp2/1b1p1Pb1/3P2Q1/2n3P1/2p5/P4P2/4R1K1 w - - 1 0
+     */
+    private int principalVariationSearch(SearchPosition position, int previousMove, int depth, int ply, int alpha, int beta, long startTime, long timeLimit) {
+        log.debug(" ------------------------- {} ------------------------- ", depth);
+        nodeCount++;
+        // Check for time limit exceeded, helpers also stop once the main search is done
+        if (System.currentTimeMillis() - startTime > timeLimit || stopped) {
+            return AI.EXIT_FLAG;
+        }
+
+        if (position.isInStateDraw()) {
+            return DRAW;
+        }
+
+        boolean isWhite = position.whitesTurn();
+        if (depth == 0) {
+            int eval = evaluateBoard(position, isWhite, ply, startTime, timeLimit);
+            log.trace("eval {}, alpha {}, beta {}, depth: {}, startTime {}, timeLimit {}, isWhite {}", eval, alpha, beta, depth, System.currentTimeMillis() - startTime, timeLimit, isWhite);
+            return eval;
+        }
+
+        long boardHash = position.getBoardStateHash();
+        TranspositionTableEntry entry = probeEntry;
+        int hashMove = -1;
+
+        if (transpositionTable.probe(boardHash, entry)) {
+            hashMove = entry.bestMove;
+            if (entry.depth >= depth) {
+                int entryScore = scoreFromTable(entry.score, ply);
+                if (entry.nodeType == NodeType.EXACT) {
+                    return entryScore;
+                }
+                if (entry.nodeType == NodeType.LOWERBOUND && entryScore > alpha) {
+                    alpha = entryScore;
+                } else if (entry.nodeType == NodeType.UPPERBOUND && entryScore < beta) {
+                    beta = entryScore;
+                }
+                if (alpha >= beta) {
+                    return entryScore;
+                }
+            }
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        // From the board, null move pruning and LMR must never mistake a check evasion for a quiet node
+        boolean inCheck = position.isInCheck();
+
+        // Null move pruning: if passing the turn still fails high, a real move will too. Never twice in a row, and
+        // not without pieces besides pawns, where zugzwang makes passing better than any move
+        if (!pvNode && !inCheck && depth >= NULL_MOVE_MIN_DEPTH && previousMove != -1
+                && Math.abs(beta) < MATE_BOUND && position.hasNonPawnMaterial()
+                && evaluateStaticPosition(position, isWhite, ply) >= beta) {
+            int reduction = depth >= NULL_MOVE_DEEP_DEPTH ? NULL_MOVE_REDUCTION + 1 : NULL_MOVE_REDUCTION;
+            position.performNullMove();
+            int score = principalVariationSearch(position, -1, depth - 1 - reduction, ply + 1, -beta, -beta + 1, startTime, timeLimit);
+            position.undoNullMove();
+
+            if (score == AI.EXIT_FLAG) {
+                return AI.EXIT_FLAG;
+            }
+            if (-score >= beta) {
+                return -score >= MATE_BOUND ? beta : -score; // an unproven mate after passing is not trusted
+            }
+        }
+
+        int alphaOriginal = alpha; // Store the original alpha value
+        int bestScore = -AI.INFINITY;
+        int bestMoveAtThisNode = -1; // Variable to track the best move at this node
+
+        int moveCount = scoreMoves(position, ply, hashMove, previousMove);
+        if (moveCount == 0) {
+            return inCheck ? -(MATE - ply) : DRAW; // mated or stalemated
+        }
+        int[] scores = moveStack.getScores();
+        int start = moveStack.start(ply);
+        for (int i = 0; i < moveCount; i++) {
+            int move = pickNextMove(ply, i, moveCount);
+            position.performMove(move);
+
+            // Late quiet moves that do not give check are searched shallower first, see searchChild
+            int reduction = 0;
+            if (depth >= LMR_MIN_DEPTH && i >= LMR_MIN_MOVE_NUMBER && !inCheck && scores[start + i] < COUNTER_MOVE_SCORE
+                    && !MoveHelper.isCapture(move) && !MoveHelper.isPawnPromotionMove(move)
+                    && !position.isInStateCheck()) {
+                reduction = LMR_REDUCTIONS[Math.min(depth, 63)][Math.min(i, 63)] - (pvNode ? 1 : 0);
+                reduction = Math.max(0, Math.min(reduction, depth - 2));
+            }
+
+            int score = searchChild(position, move, depth, reduction, ply + 1, alpha, beta, bestMoveAtThisNode == -1, startTime, timeLimit);
+            position.undoLastMove();
+
+            if (score == AI.EXIT_FLAG || ai.positionChanged()) {
+                log.info("pvs Position changed");
+                return AI.EXIT_FLAG;
+            }
+
+            if (score > bestScore) { // Found a better evaluation
+                bestScore = score;
+                bestMoveAtThisNode = move; // Update the best move
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                updateMoveOrdering(ply, depth, i, previousMove);
+                log.debug("New Killer Move is {}", Move.convertIntToMove(move));
+                break; // Alpha-beta pruning
+            }
+        }
+
+        // After the for loop, update the transposition table with the best move
+        int tableScore = scoreToTable(bestScore, ply);
+        int tableMove = bestMoveAtThisNode != -1 ? MoveHelper.toCompactMove(bestMoveAtThisNode) : -1;
+        if (bestScore <= alphaOriginal) {
+            transpositionTable.store(boardHash, tableScore, depth, NodeType.UPPERBOUND, tableMove);
+        } else if (bestScore >= beta) {
+            transpositionTable.store(boardHash, tableScore, depth, NodeType.LOWERBOUND, tableMove);
+        } else {
+            transpositionTable.store(boardHash, tableScore, depth, NodeType.EXACT, tableMove);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Searches the position after a move of the parent. The first move gets the full window, every other move
+     * a null window that only proves it is not better than alpha, and is searched again if that fails.
+     * A reduced move that beats alpha is searched again at full depth before the full window.
+     *
+     * @return the score for the side that made the move or {@link AI#EXIT_FLAG}
+     */
+    private int searchChild(SearchPosition position, int move, int depth, int reduction, int ply, int alpha, int beta, boolean firstMove, long startTime, long timeLimit) {
+        int score;
+        if (!firstMove) {
+            score = principalVariationSearch(position, move, depth - 1 - reduction, ply, -alpha - 1, -alpha, startTime, timeLimit);
+            if (score != AI.EXIT_FLAG && reduction > 0 && -score > alpha) {
+                score = principalVariationSearch(position, move, depth - 1, ply, -alpha - 1, -alpha, startTime, timeLimit);
+            }
+            if (score == AI.EXIT_FLAG || -score <= alpha || -score >= beta) {
+                return score == AI.EXIT_FLAG ? AI.EXIT_FLAG : -score;
+            }
+        }
+        score = principalVariationSearch(position, move, depth - 1, ply, -beta, -alpha, startTime, timeLimit);
+        return score == AI.EXIT_FLAG ? AI.EXIT_FLAG : -score;
+    }
+
+    /**
+     * Generates the legal moves into the slice of the ply and scores each of them once for ordering.
+     *
+     * @return the number of moves
+     */
+    private int scoreMoves(SearchPosition position, int ply, int hashMove, int previousMove) {
+        int moveCount = position.generateLegalMoves(moveStack, ply);
+        int start = moveStack.start(ply);
+        int[] moves = moveStack.getMoves();
+        int[] scores = moveStack.getScores();
+        int counterMove = previousMove != -1 ? counterMoves[sideIndex(previousMove)][MoveHelper.derivePieceTypeBits(previousMove)][MoveHelper.deriveToIndex(previousMove)] : -1;
+        for (int i = start; i < start + moveCount; i++) {
+            scores[i] = scoreMove(position, moves[i], ply, hashMove, counterMove);
+        }
+        return moveCount;
+    }
+
+    private int scoreMove(SearchPosition position, int move, int ply, int hashMove, int counterMove) {
+        if (MoveHelper.toCompactMove(move) == hashMove) {
+            return HASH_MOVE_SCORE;
+        }
+
+        if (MoveHelper.isCapture(move)) {
+            int mvvLvaScore = calculateMvvLvaScore(move);
+            int captureScore = mvvLvaScore + captureHistoryOf(move) / CAPTURE_HISTORY_DIVISOR;
+            return isGoodCapture(position, move, mvvLvaScore) ? WINNING_CAPTURE_SCORE + captureScore : LOSING_CAPTURE_SCORE + captureScore;
+        }
+
+        if (MoveHelper.isPawnPromotionMove(move)) {
+            return WINNING_CAPTURE_SCORE + Score.getPieceValue(MoveHelper.derivePromotionPieceTypeBits(move)) * 1000;
+        }
+
+        for (int killerMove : killerMoves[ply]) {
+            if (move == killerMove) {
+                return KILLER_MOVE_SCORE;
+            }
+        }
+        if (move == counterMove) {
+            return COUNTER_MOVE_SCORE;
+        }
+
+        return history[sideIndex(move)][MoveHelper.deriveFromIndex(move)][MoveHelper.deriveToIndex(move)];
+    }
+
+    /**
+     * Rewards the move at {@code cutoffIndex} of the ply for the beta cutoff and punishes the moves of the same kind
+     * searched before it. Quiet moves also become killer move of the ply and countermove of the previous move.
+     */
+    private void updateMoveOrdering(int ply, int depth, int cutoffIndex, int previousMove) {
+        int[] buffer = moveStack.getMoves();
+        int start = moveStack.start(ply);
+        int cutoffMove = buffer[start + cutoffIndex];
+        int bonus = Math.min(depth * depth, MAX_HISTORY);
+
+        if (MoveHelper.isCapture(cutoffMove)) {
+            for (int i = start; i < start + cutoffIndex; i++) {
+                if (MoveHelper.isCapture(buffer[i])) {
+                    updateCaptureHistory(buffer[i], -bonus);
+                }
+            }
+            updateCaptureHistory(cutoffMove, bonus);
+            return;
+        }
+        if (MoveHelper.isPawnPromotionMove(cutoffMove)) {
+            return;
+        }
+
+        for (int i = start; i < start + cutoffIndex; i++) {
+            if (!MoveHelper.isCapture(buffer[i]) && !MoveHelper.isPawnPromotionMove(buffer[i])) {
+                updateHistory(buffer[i], -bonus);
+            }
+        }
+        updateHistory(cutoffMove, bonus);
+        updateKillerMoves(ply, cutoffMove);
+        if (previousMove != -1) {
+            counterMoves[sideIndex(previousMove)][MoveHelper.derivePieceTypeBits(previousMove)][MoveHelper.deriveToIndex(previousMove)] = cutoffMove;
+        }
+    }
+
+    // The bonus shrinks as a score approaches MAX_HISTORY, so scores stay within +-MAX_HISTORY
+    private void updateHistory(int move, int bonus) {
+        int[] historyFrom = history[sideIndex(move)][MoveHelper.deriveFromIndex(move)];
+        int to = MoveHelper.deriveToIndex(move);
+        historyFrom[to] += bonus - historyFrom[to] * Math.abs(bonus) / MAX_HISTORY;
+    }
+
+    private void updateCaptureHistory(int move, int bonus) {
+        int[] captureHistoryTo = captureHistory[MoveHelper.derivePieceTypeBits(move)][MoveHelper.deriveToIndex(move)];
+        int captured = MoveHelper.deriveCapturedPieceTypeBits(move);
+        captureHistoryTo[captured] += bonus - captureHistoryTo[captured] * Math.abs(bonus) / MAX_HISTORY;
+    }
+
+    private int captureHistoryOf(int move) {
+        return captureHistory[MoveHelper.derivePieceTypeBits(move)][MoveHelper.deriveToIndex(move)][MoveHelper.deriveCapturedPieceTypeBits(move)];
+    }
+
+    private static int sideIndex(int move) {
+        return MoveHelper.isWhitesMove(move) ? 0 : 1;
+    }
+
+    /**
+     * One step of a selection sort: moves the best scored of the remaining moves of the ply to {@code index}.
+     * Moves behind a cutoff are never sorted.
+     */
+    private int pickNextMove(int ply, int index, int moveCount) {
+        int[] buffer = moveStack.getMoves();
+        int[] scores = moveStack.getScores();
+        int start = moveStack.start(ply);
+        index += start;
+
+        int best = index;
+        for (int i = index + 1; i < start + moveCount; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+
+        int move = buffer[best];
+        buffer[best] = buffer[index];
+        buffer[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    /**
+     * Evaluates the position from the perspective of {@code isWhitesTurn}, which is not necessarily the
+     * side to move. A mate found {@code ply} plies from the root scores {@code MATE - ply}.
+     */
+    int evaluateBoard(SearchPosition position, boolean isWhitesTurn, int ply, long startTime, long timeLimit) {
+        if (position.isInStateDraw()) {
+            return DRAW;
+        }
+
+        int alpha = -AI.INFINITY;
+        int beta = AI.INFINITY;
+
+        // Callers may evaluate for either side, so the perspective is part of the key
+        long boardStateHash = position.getBoardStateHash() ^ (isWhitesTurn ? 0 : BLACK_PERSPECTIVE_KEY);
+        if (captureTranspositionTable.probe(boardStateHash, captureProbeEntry)) {
+            return scoreFromTable(captureProbeEntry.getScore(), ply);
+        }
+
+        int score = quiescenceSearch(position, isWhitesTurn, alpha, beta, startTime, timeLimit, ply);
+        if (score != AI.EXIT_FLAG) {
+            captureTranspositionTable.store(boardStateHash, scoreToTable(score, ply), 0, NodeType.EXACT, -1);
+        }
+
+        return score;
+    }
+
+    private int quiescenceSearch(SearchPosition position, boolean isWhitesTurn, int alpha, int beta, long startTime, long timeLimit, int ply) {
+        nodeCount++;
+        if (System.currentTimeMillis() - startTime > timeLimit || stopped) {
+            log.debug("timeout");
+            return AI.EXIT_FLAG; // Timeout
+        }
+
+        int standPat = evaluateStaticPosition(position, isWhitesTurn, ply);
+        if (standPat >= beta) {
+            return beta; // Fail-hard beta cutoff
+        }
+        if (alpha < standPat) {
+            alpha = standPat; // Stand pat
+        }
+
+        if (ply >= moveStack.maxPly() || position.isInStateDraw()) {
+            return alpha; // deeper than any capture sequence should go, or a draw
+        }
+
+        int moveCount = scoreCapturesAndPromotions(position, ply);
+        for (int i = 0; i < moveCount; i++) {
+            int move = pickNextMove(ply, i, moveCount);
+            // Delta pruning
+            if (!MoveHelper.isPawnPromotionMove(move)
+                    && standPat + Score.getPieceValue(MoveHelper.deriveCapturedPieceTypeBits(move)) * 1000 + DELTA_MARGIN <= alpha) {
+                continue;
+            }
+            if (!position.isLegalMove(move)) {
+                continue;
+            }
+            position.performMove(move);
+            int score = quiescenceSearch(position, !isWhitesTurn, -beta, -alpha, startTime, timeLimit, ply + 1);
+            position.undoLastMove();
+
+            if (score == AI.EXIT_FLAG) {
+                return AI.EXIT_FLAG;
+            }
+            score = -score;
+
+            if (score >= beta) {
+                return beta; // Beta cutoff
+            }
+            if (score > alpha) {
+                alpha = score; // Found a better move
+            }
+        }
+        return alpha; // Best score in the subtree
+    }
+
+    private int evaluateStaticPosition(SearchPosition position, boolean isWhitesTurn, int ply) {
+        // Only a position in check can be mate, stalemate is left to the main search
+        if (position.isInStateCheck() && !position.hasLegalMove()) {
+            log.debug("Checkmate found");
+            return mateScore(position, isWhitesTurn, ply);
+        }
+        if (position.isInStateDraw()) {
+            log.debug("DRAW");
+            return DRAW;
+        }
+        int scoreDifference = position.getScoreDifference();
+
+        log.debug("Evaluate static position score {}, {} ", isWhitesTurn ? scoreDifference : -scoreDifference, isWhitesTurn ? "WHITE" : "BLACK");
+        return isWhitesTurn ? scoreDifference : -scoreDifference;
+    }
+
+    /**
+     * The side to move is mated, shorter mates score higher so the search goes for the fastest one.
+     */
+    private static int mateScore(SearchPosition position, boolean isWhitesTurn, int ply) {
+        return isWhitesTurn == position.whitesTurn() ? -(MATE - ply) : MATE - ply;
+    }
+
+    /**
+     * Mate scores are stored relative to the position instead of the root, so an entry stays valid
+     * when the position is reached at another ply.
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE_BOUND && score <= MATE) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND && score >= -MATE) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE_BOUND && score <= MATE) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND && score >= -MATE) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Generates the pseudo legal captures and promotions into the slice of the ply, scored by MVV-LVA. Captures
+     * that lose material by static exchange evaluation are dropped from the slice, legality is only checked once a
+     * move is searched.
+     *
+     * @return the number of captures and promotions
+     */
+    private int scoreCapturesAndPromotions(SearchPosition position, int ply) {
+        int generated = position.generateCaptures(moveStack, ply);
+        int start = moveStack.start(ply);
+        int[] buffer = moveStack.getMoves();
+        int[] scores = moveStack.getScores();
+        int end = start;
+        for (int i = start; i < start + generated; i++) {
+            int m = buffer[i];
+            if (MoveHelper.isCapture(m)) {
+                int mvvLvaScore = calculateMvvLvaScore(m);
+                if (isGoodCapture(position, m, mvvLvaScore)) {
+                    buffer[end] = m;
+                    scores[end++] = mvvLvaScore;
+                }
+            } else if (MoveHelper.isPawnPromotionMove(m)) {
+                buffer[end] = m;
+                scores[end++] = Score.getPieceValue(MoveHelper.derivePromotionPieceTypeBits(m)) * 1000;
+            }
+        }
+        return moveStack.setEnd(ply, end);
+    }
+
+    private void updateKillerMoves(int ply, int move) {
+        int numKillerMoves = killerMoves[ply].length; // Get the number of killer moves for this ply
+
+        // Check if the move is already in the killer moves array
+        for (int i = 0; i < numKillerMoves; i++) {
+            if (killerMoves[ply][i] == move) {
+                return; // If move is already a killer move, no need to update
+            }
+        }
+
+        // Shift existing killer moves down and insert the new move at the beginning
+        for (int i = numKillerMoves - 1; i > 0; i--) {
+            killerMoves[ply][i] = killerMoves[ply][i - 1];
+        }
+        killerMoves[ply][0] = move; // Insert new killer move at the top
+    }
+
+    /**
+     * A capture of a piece at least as valuable as the capturing one cannot lose material, only the others
+     * need the static exchange evaluation.
+     */
+    private static boolean isGoodCapture(SearchPosition position, int move, int mvvLvaScore) {
+        return mvvLvaScore >= 0 || position.staticExchangeEvaluation(move) >= 0;
+    }
+
+    private int calculateMvvLvaScore(int move) {
+        if (!MoveHelper.isCapture(move)) {
+            return 0; // Not a capture move
+        }
+        int victimValue = Score.getPieceValue(MoveHelper.deriveCapturedPieceTypeBits(move));
+        int attackerValue = Score.getPieceValue(MoveHelper.derivePieceTypeBits(move));
+        return (victimValue - attackerValue) * 1000; // millipawns, like the evaluation
+    }
+}
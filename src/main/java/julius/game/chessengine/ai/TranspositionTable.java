@@ -0,0 +1,194 @@
+package julius.game.chessengine.ai;
+
+import lombok.Getter;
+
+/**
+ * Fixed-size transposition table made of 64 bit words.
+ * <p>
+ * Every entry takes two longs: a data word (16 bit compact best move and 32 bit score) and a check word (upper key bits,
+ * depth, node type and search generation) which is stored XOR-ed with the data word. A reader that
+ * races with a writer sees a key mismatch and treats the slot as a miss, so neither probes nor stores
+ * need a lock. Four entries form a bucket of 64 bytes, which is one cache line.
+ * <p>
+ * Best moves are stored in the 16 bit form of {@link julius.game.chessengine.board.MoveHelper#toCompactMove(int)},
+ * which names a move only together with the position, so a hit hands back the compact form.
+ * <p>
+ * Where the words live is up to the subclass: {@link HeapTranspositionTable} keeps them in a
+ * {@code long[]}, {@link OffHeapTranspositionTable} in direct memory outside the Java heap.
+ */
+public abstract class TranspositionTable {
+
+    private static final int ENTRIES_PER_BUCKET = 4;
+    private static final int LONGS_PER_ENTRY = 2;
+    static final int LONGS_PER_BUCKET = ENTRIES_PER_BUCKET * LONGS_PER_ENTRY;
+    static final long BYTES_PER_BUCKET = (long) LONGS_PER_BUCKET * Long.BYTES;
+
+    // check word: <key bits 63..32> <unused> <valid 26> <nodeType 25..24> <depth 23..16> <generation 7..0>
+    private static final long KEY_MASK = 0xFFFFFFFF00000000L;
+    private static final long VALID_FLAG = 1L << 26;
+    private static final int NODE_TYPE_SHIFT = 24;
+    private static final int DEPTH_SHIFT = 16;
+    private static final int GENERATION_MASK = 0xFF;
+
+    // data word: <unused 63..48> <compact best move 47..32> <score 31..0>, from and to square 63 marks no move
+    private static final int MOVE_MASK = 0xFFFF;
+    private static final int NO_MOVE = 0xFFFF;
+
+    // Number of buckets looked at to estimate how full the table is
+    private static final int USAGE_SAMPLE_BUCKETS = 250;
+
+    private static final NodeType[] NODE_TYPES = NodeType.values();
+
+    private final long bucketMask;
+
+    @Getter
+    private final int sizeInMb;
+
+    private volatile int generation = 0;
+
+    protected TranspositionTable(int sizeInMb) {
+        if (sizeInMb < 1) {
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB, was " + sizeInMb);
+        }
+        this.sizeInMb = sizeInMb;
+        this.bucketMask = Long.highestOneBit(sizeInMb * 1024L * 1024L / BYTES_PER_BUCKET) - 1;
+    }
+
+    public static TranspositionTable create(int sizeInMb, boolean offHeap) {
+        return offHeap ? new OffHeapTranspositionTable(sizeInMb) : new HeapTranspositionTable(sizeInMb);
+    }
+
+    /**
+     * @return the number of longs the subclass has to provide, always a power of two times a bucket
+     */
+    protected long capacityInLongs() {
+        return (bucketMask + 1) * LONGS_PER_BUCKET;
+    }
+
+    protected abstract long get(long index);
+
+    protected abstract void set(long index, long value);
+
+    /**
+     * Zeroes all words, which marks every entry as empty.
+     */
+    protected abstract void fillWithZero();
+
+    public abstract boolean isOffHeap();
+
+    /**
+     * @return the bytes actually reserved for entries, which can be less than {@link #getSizeInMb()}
+     * because the bucket count is rounded down to a power of two
+     */
+    public long getMemoryUsageInBytes() {
+        return capacityInLongs() * Long.BYTES;
+    }
+
+    /**
+     * Estimates the share of entries written by the current search, in permille.
+     */
+    public int getUsagePermille() {
+        int currentGeneration = generation;
+        long buckets = Math.min(USAGE_SAMPLE_BUCKETS, bucketMask + 1);
+        int used = 0;
+        for (long index = 0; index < buckets * LONGS_PER_BUCKET; index += LONGS_PER_ENTRY) {
+            long check = get(index) ^ get(index + 1);
+            if ((check & VALID_FLAG) != 0 && ((int) check & GENERATION_MASK) == currentGeneration) {
+                used++;
+            }
+        }
+        return (int) (used * 1000L / (buckets * ENTRIES_PER_BUCKET));
+    }
+
+    /**
+     * Starts a new search. Entries from older searches become the preferred victims on store.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    public void clear() {
+        fillWithZero();
+        generation = 0;
+    }
+
+    /**
+     * Looks up the position and copies a hit into the caller owned entry, so a probe allocates nothing.
+     *
+     * @return true if an entry for the key was found and written to {@code out}
+     */
+    public boolean probe(long key, TranspositionTableEntry out) {
+        long base = bucketIndex(key);
+        for (int i = 0; i < LONGS_PER_BUCKET; i += LONGS_PER_ENTRY) {
+            long data = get(base + i + 1);
+            long check = get(base + i) ^ data;
+            if ((check & VALID_FLAG) != 0 && (check & KEY_MASK) == (key & KEY_MASK)) {
+                out.score = (int) data;
+                int bestMove = (int) (data >>> 32) & MOVE_MASK;
+                out.bestMove = bestMove != NO_MOVE ? bestMove : -1;
+                out.depth = (int) (check >>> DEPTH_SHIFT) & 0xFF;
+                out.nodeType = NODE_TYPES[(int) (check >>> NODE_TYPE_SHIFT) & 0x03];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param bestMove the compact best move, -1 if none
+     */
+    public void store(long key, int score, int depth, NodeType nodeType, int bestMove) {
+        long base = bucketIndex(key);
+        int currentGeneration = generation;
+        long victim = base;
+        int victimValue = Integer.MAX_VALUE;
+
+        for (int i = 0; i < LONGS_PER_BUCKET; i += LONGS_PER_ENTRY) {
+            long index = base + i;
+            long data = get(index + 1);
+            long check = get(index) ^ data;
+
+            if ((check & VALID_FLAG) == 0) {
+                victim = index;
+                break;
+            }
+
+            int entryDepth = (int) (check >>> DEPTH_SHIFT) & 0xFF;
+            int entryGeneration = (int) check & GENERATION_MASK;
+
+            if ((check & KEY_MASK) == (key & KEY_MASK)) {
+                // Same position: keep a deeper result from the current search
+                if (entryGeneration == currentGeneration && entryDepth > depth) {
+                    return;
+                }
+                if (bestMove == -1) {
+                    bestMove = (int) (data >>> 32) & MOVE_MASK; // keep the known best move
+                }
+                victim = index;
+                break;
+            }
+
+            // Depth-preferred, but entries from older searches age out first
+            int age = (currentGeneration - entryGeneration) & GENERATION_MASK;
+            int value = entryDepth - 8 * age;
+            if (value < victimValue) {
+                victimValue = value;
+                victim = index;
+            }
+        }
+
+        long data = ((long) (bestMove & MOVE_MASK) << 32) | (score & 0xFFFFFFFFL);
+        long check = (key & KEY_MASK)
+                | VALID_FLAG
+                | ((long) nodeType.ordinal() << NODE_TYPE_SHIFT)
+                | ((long) Math.min(Math.max(depth, 0), 0xFF) << DEPTH_SHIFT)
+                | currentGeneration;
+
+        set(victim + 1, data);
+        set(victim, check ^ data);
+    }
+
+    private long bucketIndex(long key) {
+        return (key & bucketMask) * LONGS_PER_BUCKET;
+    }
+}
@@ -1,29 +1,33 @@
-package julius.game.chessengine.ai;
-
-import lombok.Getter;
-
-@Getter
-public class TranspositionTableEntry {
-    double score;
-    int depth;
-    NodeType nodeType;
-    int bestMove; // Added to store the best move
-
-    public TranspositionTableEntry(double score, int depth, NodeType nodeType, int bestMove) {
-        this.score = score;
-        this.depth = depth;
-        this.nodeType = nodeType;
-        this.bestMove = bestMove;
-    }
-
-    @Override
-    public String toString() {
-        return "TranspositionTableEntry{" +
-                "score=" + score +
-                ", depth=" + depth +
-                ", nodeType=" + nodeType +
-                ", bestMove=" + bestMove +
-                '}';
-    }
-}
-
+package julius.game.chessengine.ai;
+
+import lombok.Getter;
+
+@Getter
+public class TranspositionTableEntry {
+    int score;
+    int depth;
+    NodeType nodeType;
+    int bestMove; // compact best move, see MoveHelper.toCompactMove, -1 if none
+
+    public TranspositionTableEntry() {
+        // filled in place by TranspositionTable.probe
+    }
+
+    public TranspositionTableEntry(int score, int depth, NodeType nodeType, int bestMove) {
+        this.score = score;
+        this.depth = depth;
+        this.nodeType = nodeType;
+        this.bestMove = bestMove;
+    }
+
+    @Override
+    public String toString() {
+        return "TranspositionTableEntry{" +
+                "score=" + score +
+                ", depth=" + depth +
+                ", nodeType=" + nodeType +
+                ", bestMove=" + bestMove +
+                '}';
+    }
+}
+
@@ -1,14 +1,15 @@
 package julius.game.chessengine.board;
 
 import julius.game.chessengine.figures.PieceType;
-import julius.game.chessengine.helper.BishopHelper;
 import julius.game.chessengine.helper.KnightHelper;
-import julius.game.chessengine.helper.RookHelper;
 import julius.game.chessengine.helper.ZobristTable;
 import julius.game.chessengine.utils.Color;
+import julius.game.chessengine.utils.Score;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 import static julius.game.chessengine.board.MoveHelper.createMoveInt;
@@ -16,32 +17,45 @@ import static julius.game.chessengine.helper.BitHelper.*;
 import static julius.game.chessengine.helper.BitboardHelper.lineBetweenIndices;
 import static julius.game.chessengine.helper.KingHelper.KING_ATTACKS;
 import static julius.game.chessengine.helper.KnightHelper.knightMoveTable;
+import static julius.game.chessengine.helper.SliderHelper.*;
 
 @Log4j2
 @Getter
 public class BitBoard {
 
-    BishopHelper bishopHelper = BishopHelper.getInstance();
-    RookHelper rookHelper = RookHelper.getInstance();
-
     public boolean whitesTurn = true;
-    // Add score field to the BitBoard class
-    private long whitePawns = 0L;
-    private long blackPawns = 0L;
-    private long whiteKnights = 0L;
-    private long blackKnights = 0L;
-    private long whiteBishops = 0L;
-    private long blackBishops = 0L;
-    private long whiteRooks = 0L;
-    private long blackRooks = 0L;
-    private long whiteQueens = 0L;
-    private long blackQueens = 0L;
-    private long whiteKing = 0L;
-    private long blackKing = 0L;
-    private long whitePieces = 0L;
-    private long blackPieces = 0L;
+
+    // Color indices of the bitboard arrays
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Piece type bits as used in the move ints
+    private static final int PAWN = 1;
+    private static final int KNIGHT = 2;
+    private static final int BISHOP = 3;
+    private static final int ROOK = 4;
+    private static final int QUEEN = 5;
+    private static final int KING = 6;
+
+    // Bitboard of every piece type and color at color * 6 + piece type bits - 1
+    @Getter(AccessLevel.NONE)
+    private final long[] pieceBitboards = new long[12];
+    // All pieces of a color, indexed by WHITE and BLACK
+    @Getter(AccessLevel.NONE)
+    private final long[] colorBitboards = new long[2];
     private long allPieces = 0L;
 
+    // Squares attacked by a pawn of the color standing on the square, indexed by color and square
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            long pawn = 1L << square;
+            PAWN_ATTACKS[WHITE][square] = (pawn & ~FileMasks[0]) << 7 | (pawn & ~FileMasks[7]) << 9;
+            PAWN_ATTACKS[BLACK][square] = (pawn & ~FileMasks[0]) >>> 9 | (pawn & ~FileMasks[7]) >>> 7;
+        }
+    }
+
     // This variable needs to be set whenever a move is made
     //TODO only write to it if en passant is possible then you can also hash it
     @Getter
@@ -60,22 +74,73 @@ public class BitBoard {
     private boolean whiteKingHasCastled = false;
     private boolean blackKingHasCastled = false;
 
-    public BitBoard(boolean whitesTurn, long whitePawns, long blackPawns, long whiteKnights, long blackKnights, long whiteBishops, long blackBishops, long whiteRooks, long blackRooks, long whiteQueens, long blackQueens, long whiteKing, long blackKing, long whitePieces, long blackPieces, long allPieces, int lastMoveDoubleStepPawnIndex, boolean whiteKingMoved, boolean blackKingMoved, boolean whiteRookA1Moved, boolean whiteRookH1Moved, boolean blackRookA8Moved, boolean blackRookH8Moved, boolean whiteKingHasCastled, boolean blackKingHasCastled) {
+    // Moves since the last capture or pawn move
+    private int halfmoveClock;
+
+    // Undo record of every move and null move on the board, so the move itself only has to say what moved where:
+    // the en passant pawn, the castling flags, the captured piece and the halfmove clock before the move packed into
+    // an int, next to the hash before the move
+    private static final int UNDO_INITIAL_CAPACITY = 128;
+    private static final int UNDO_FLAGS_SHIFT = 6;
+    private static final int UNDO_CAPTURED_SHIFT = 14;
+    private static final int UNDO_HALFMOVE_SHIFT = 18;
+    @Getter(AccessLevel.NONE)
+    private int[] undoStates = new int[UNDO_INITIAL_CAPACITY];
+    @Getter(AccessLevel.NONE)
+    private long[] undoHashes = new long[UNDO_INITIAL_CAPACITY];
+    @Getter(AccessLevel.NONE)
+    private int undoCount;
+
+    // Piece values in millipawns indexed by piece type bits for the static exchange evaluation, the king is
+    // worth more than everything else so capturing into a defended square with it never pays off
+    private static final int[] SEE_PIECE_VALUES = {0, Score.PAWN_VALUE, Score.KNIGHT_VALUE, Score.BISHOP_VALUE,
+            Score.ROOK_VALUE, Score.QUEEN_VALUE, 100 * Score.QUEEN_VALUE};
+
+    // Gains of the capture sequence, reused by every static exchange evaluation of this board
+    @Getter(AccessLevel.NONE)
+    private final int[] seeGains = new int[32];
+
+    // Zobrist key of the position, updated by every move, run with -ea to verify it against a full calculation
+    private long boardStateHash;
+
+    // Zobrist key of the pawns alone, for the pawn hash table, updated by pawn moves and pawn captures
+    private long pawnHash;
+
+    // Piece on every square next to the bitboards: the piece type bits, plus BLACK_PIECE for black, 0 if empty
+    @Getter(AccessLevel.NONE)
+    private final byte[] squares = new byte[64];
+    private static final int BLACK_PIECE = 8;
+    private static final PieceType[] PIECE_TYPES = {null, PieceType.PAWN, PieceType.KNIGHT, PieceType.BISHOP,
+            PieceType.ROOK, PieceType.QUEEN, PieceType.KING};
+
+    // Squares a pinned piece may move to, the line to the pinning piece including it, only valid for pinned pieces
+    @Getter(AccessLevel.NONE)
+    private final long[] pinRays = new long[64];
+
+    // Check information of the side to move, calculated on first use and dropped by every change of the position
+    @Getter(AccessLevel.NONE)
+    private boolean checkInfoValid;
+    @Getter(AccessLevel.NONE)
+    private boolean checkInfoWhitesTurn;
+    @Getter(AccessLevel.NONE)
+    private long checkers;
+    @Getter(AccessLevel.NONE)
+    private long checkMask;
+    @Getter(AccessLevel.NONE)
+    private long pinned;
+
+    // Generation target of the methods that return a MoveList, copied into a list of the exact size
+    @Getter(AccessLevel.NONE)
+    private final int[] moveBuffer = new int[MoveList.MAX_SIZE];
+
+    private static final PieceType[] PROMOTION_PIECES = {PieceType.ROOK, PieceType.QUEEN, PieceType.BISHOP, PieceType.KNIGHT};
+
+    public BitBoard(boolean whitesTurn, long whitePawns, long blackPawns, long whiteKnights, long blackKnights, long whiteBishops, long blackBishops, long whiteRooks, long blackRooks, long whiteQueens, long blackQueens, long whiteKing, long blackKing, long whitePieces, long blackPieces, long allPieces, int lastMoveDoubleStepPawnIndex, boolean whiteKingMoved, boolean blackKingMoved, boolean whiteRookA1Moved, boolean whiteRookH1Moved, boolean blackRookA8Moved, boolean blackRookH8Moved, boolean whiteKingHasCastled, boolean blackKingHasCastled, int halfmoveClock) {
         this.whitesTurn = whitesTurn;
-        this.whitePawns = whitePawns;
-        this.blackPawns = blackPawns;
-        this.whiteKnights = whiteKnights;
-        this.blackKnights = blackKnights;
-        this.whiteBishops = whiteBishops;
-        this.blackBishops = blackBishops;
-        this.whiteRooks = whiteRooks;
-        this.blackRooks = blackRooks;
-        this.whiteQueens = whiteQueens;
-        this.blackQueens = blackQueens;
-        this.whiteKing = whiteKing;
-        this.blackKing = blackKing;
-        this.whitePieces = whitePieces;
-        this.blackPieces = blackPieces;
+        setPieces(WHITE, whitePawns, whiteKnights, whiteBishops, whiteRooks, whiteQueens, whiteKing);
+        setPieces(BLACK, blackPawns, blackKnights, blackBishops, blackRooks, blackQueens, blackKing);
+        this.colorBitboards[WHITE] = whitePieces;
+        this.colorBitboards[BLACK] = blackPieces;
         this.allPieces = allPieces;
         this.lastMoveDoubleStepPawnIndex = lastMoveDoubleStepPawnIndex;
         this.whiteKingMoved = whiteKingMoved;
@@ -86,33 +151,25 @@ public class BitBoard {
         this.blackRookH8Moved = blackRookH8Moved;
         this.whiteKingHasCastled = whiteKingHasCastled;
         this.blackKingHasCastled = blackKingHasCastled;
+        this.halfmoveClock = halfmoveClock;
+        fillSquares();
+        this.boardStateHash = calculateBoardStateHash();
+        this.pawnHash = calculatePawnHash();
     }
 
     public BitBoard() {
         setInitialPosition();
+        fillSquares();
+        this.boardStateHash = calculateBoardStateHash();
+        this.pawnHash = calculatePawnHash();
     }
 
     public BitBoard(BitBoard other) {
         // Copying all the long fields representing the pieces
-        this.bishopHelper = other.bishopHelper;
-        this.rookHelper = other.rookHelper;
-
-        this.whitePawns = other.whitePawns;
-        this.blackPawns = other.blackPawns;
-        this.whiteKnights = other.whiteKnights;
-        this.blackKnights = other.blackKnights;
-        this.whiteBishops = other.whiteBishops;
-        this.blackBishops = other.blackBishops;
-        this.whiteRooks = other.whiteRooks;
-        this.blackRooks = other.blackRooks;
-        this.whiteQueens = other.whiteQueens;
-        this.blackQueens = other.blackQueens;
-        this.whiteKing = other.whiteKing;
-        this.blackKing = other.blackKing;
+        System.arraycopy(other.pieceBitboards, 0, this.pieceBitboards, 0, 12);
 
         // Copying the combined bitboards
-        this.whitePieces = other.whitePieces;
-        this.blackPieces = other.blackPieces;
+        System.arraycopy(other.colorBitboards, 0, this.colorBitboards, 0, 2);
         this.allPieces = other.allPieces;
 
         // Copying the flags
@@ -129,18 +186,123 @@ public class BitBoard {
 
         this.blackKingHasCastled = other.blackKingHasCastled;
         this.whiteKingHasCastled = other.whiteKingHasCastled;
+
+        this.boardStateHash = other.boardStateHash;
+        this.pawnHash = other.pawnHash;
+        System.arraycopy(other.squares, 0, this.squares, 0, 64);
+
+        this.halfmoveClock = other.halfmoveClock;
+        this.undoStates = Arrays.copyOf(other.undoStates, other.undoStates.length);
+        this.undoHashes = Arrays.copyOf(other.undoHashes, other.undoHashes.length);
+        this.undoCount = other.undoCount;
+    }
+
+    private void setPieces(int color, long pawns, long knights, long bishops, long rooks, long queens, long king) {
+        pieceBitboards[pieceIndex(PAWN, color)] = pawns;
+        pieceBitboards[pieceIndex(KNIGHT, color)] = knights;
+        pieceBitboards[pieceIndex(BISHOP, color)] = bishops;
+        pieceBitboards[pieceIndex(ROOK, color)] = rooks;
+        pieceBitboards[pieceIndex(QUEEN, color)] = queens;
+        pieceBitboards[pieceIndex(KING, color)] = king;
+    }
+
+    private void fillSquares() {
+        for (int index = 0; index < 64; index++) {
+            squares[index] = 0;
+            for (int pieceTypeBits = PAWN; pieceTypeBits <= KING; pieceTypeBits++) {
+                if ((pieces(pieceTypeBits, WHITE) & (1L << index)) != 0) {
+                    squares[index] = (byte) pieceTypeBits;
+                } else if ((pieces(pieceTypeBits, BLACK) & (1L << index)) != 0) {
+                    squares[index] = (byte) (pieceTypeBits | BLACK_PIECE);
+                }
+            }
+        }
+    }
+
+    private static int colorIndex(boolean isWhite) {
+        return isWhite ? WHITE : BLACK;
+    }
+
+    private static int pieceIndex(int pieceTypeBits, int color) {
+        return color * 6 + pieceTypeBits - 1;
+    }
+
+    private long pieces(int pieceTypeBits, int color) {
+        return pieceBitboards[color * 6 + pieceTypeBits - 1];
+    }
+
+    public long getWhitePawns() {
+        return pieces(PAWN, WHITE);
+    }
+
+    public long getBlackPawns() {
+        return pieces(PAWN, BLACK);
+    }
+
+    public long getWhiteKnights() {
+        return pieces(KNIGHT, WHITE);
+    }
+
+    public long getBlackKnights() {
+        return pieces(KNIGHT, BLACK);
+    }
+
+    public long getWhiteBishops() {
+        return pieces(BISHOP, WHITE);
+    }
+
+    public long getBlackBishops() {
+        return pieces(BISHOP, BLACK);
+    }
+
+    public long getWhiteRooks() {
+        return pieces(ROOK, WHITE);
+    }
+
+    public long getBlackRooks() {
+        return pieces(ROOK, BLACK);
+    }
+
+    public long getWhiteQueens() {
+        return pieces(QUEEN, WHITE);
+    }
+
+    public long getBlackQueens() {
+        return pieces(QUEEN, BLACK);
+    }
+
+    public long getWhiteKing() {
+        return pieces(KING, WHITE);
+    }
+
+    public long getBlackKing() {
+        return pieces(KING, BLACK);
+    }
+
+    public long getWhitePieces() {
+        return colorBitboards[WHITE];
+    }
+
+    public long getBlackPieces() {
+        return colorBitboards[BLACK];
+    }
+
+    private static byte squareValue(int pieceTypeBits, boolean isWhite) {
+        return (byte) (isWhite ? pieceTypeBits : pieceTypeBits | BLACK_PIECE);
     }
 
 
     public boolean hasInsufficientMaterial() {
         // Early return if any side has pawns, rooks, or queens, as these can achieve checkmate
-        if ((whitePawns | blackPawns | whiteRooks | blackRooks | whiteQueens | blackQueens) != 0) {
-            return false;
+        for (int color = WHITE; color <= BLACK; color++) {
+            if ((pieces(PAWN, color) | pieces(ROOK, color) | pieces(QUEEN, color)) != 0) {
+                return false;
+            }
         }
 
         // Count knights and bishops for both sides
-        int whiteMinorPieces = Long.bitCount(whiteKnights) + Long.bitCount(whiteBishops);
-        int blackMinorPieces = Long.bitCount(blackKnights) + Long.bitCount(blackBishops);
+        int whiteMinorPieces = Long.bitCount(pieces(KNIGHT, WHITE) | pieces(BISHOP, WHITE));
+        int blackMinorPieces = Long.bitCount(pieces(KNIGHT, BLACK) | pieces(BISHOP, BLACK));
 
         // Check if both sides have insufficient material
         return (whiteMinorPieces <= 1) && (blackMinorPieces <= 1);
@@ -152,98 +314,38 @@ public class BitBoard {
 
     // Method to set up the initial position
     private void setInitialPosition() {
-        // Setting white pawns on the second rank
-        whitePawns = 0x000000000000FF00L;
-        // Setting black pawns on the seventh rank
-        blackPawns = 0x00FF000000000000L;
-
-        // Setting white knights on b1 and g1
-        whiteKnights = (1L << bitIndex('b', 1)) | (1L << bitIndex('g', 1));
-        // Setting black knights on b8 and g8
-        blackKnights = (1L << bitIndex('b', 8)) | (1L << bitIndex('g', 8));
-
-        // Setting white bishops on c1 and f1
-        whiteBishops = (1L << bitIndex('c', 1)) | (1L << bitIndex('f', 1));
-        // Setting black bishops on c8 and f8
-        blackBishops = (1L << bitIndex('c', 8)) | (1L << bitIndex('f', 8));
-
-        // Setting white rooks on a1 and h1
-        whiteRooks = (1L << bitIndex('a', 1)) | (1L << bitIndex('h', 1));
-        // Setting black rooks on a8 and h8
-        blackRooks = (1L << bitIndex('a', 8)) | (1L << bitIndex('h', 8));
-
-        // Setting white queen on d1
-        whiteQueens = 1L << bitIndex('d', 1);
-        // Setting black queen on d8
-        blackQueens = 1L << bitIndex('d', 8);
-
-        // Setting white king on e1
-        whiteKing = 1L << bitIndex('e', 1);
-        // Setting black king on e8
-        blackKing = 1L << bitIndex('e', 8);
-
-        // Setting all white pieces by combining the bitboards
-        whitePieces = whitePawns | whiteKnights | whiteBishops | whiteRooks | whiteQueens | whiteKing;
-        // Setting all black pieces by combining the bitboards
-        blackPieces = blackPawns | blackKnights | blackBishops | blackRooks | blackQueens | blackKing;
-
-        // Setting all pieces on the board
-        allPieces = whitePieces | blackPieces;
+        // Pawns on the second and seventh rank
+        setPieces(WHITE, 0x000000000000FF00L,
+                (1L << bitIndex('b', 1)) | (1L << bitIndex('g', 1)),
+                (1L << bitIndex('c', 1)) | (1L << bitIndex('f', 1)),
+                (1L << bitIndex('a', 1)) | (1L << bitIndex('h', 1)),
+                1L << bitIndex('d', 1),
+                1L << bitIndex('e', 1));
+        setPieces(BLACK, 0x00FF000000000000L,
+                (1L << bitIndex('b', 8)) | (1L << bitIndex('g', 8)),
+                (1L << bitIndex('c', 8)) | (1L << bitIndex('f', 8)),
+                (1L << bitIndex('a', 8)) | (1L << bitIndex('h', 8)),
+                1L << bitIndex('d', 8),
+                1L << bitIndex('e', 8));
+
+        // Setting the pieces of both colors and all pieces by combining the bitboards
+        updateAggregatedBitboards();
 
         lastMoveDoubleStepPawnIndex = 0;
     }
 
     // Method to get the bitboard for a specific piece type and color
     public long intToPiecesBitboard(int pieceTypeBits, boolean isWhite) {
-        if (isWhite) {
-            return switch (pieceTypeBits) {
-                case 1 -> whitePawns;
-                case 2 -> whiteKnights;
-                case 3 -> whiteBishops;
-                case 4 -> whiteRooks;
-                case 5 -> whiteQueens;
-                case 6 -> whiteKing;
-                default -> 0;
-            };
-        } else {
-            return switch (pieceTypeBits) {
-                case 1 -> blackPawns;
-                case 2 -> blackKnights;
-                case 3 -> blackBishops;
-                case 4 -> blackRooks;
-                case 5 -> blackQueens;
-                case 6 -> blackKing;
-                default -> 0;
-            };
+        if (pieceTypeBits < PAWN || pieceTypeBits > KING) {
+            return 0;
         }
+        return pieces(pieceTypeBits, colorIndex(isWhite));
     }
 
-    private void setBitboardForPiece(int pieceTypeBits, boolean isWhite, long bitboard) {
-        if (isWhite) {
-            switch (pieceTypeBits) {
-                case 1 -> whitePawns = bitboard;
-                case 2 -> whiteKnights = bitboard;
-                case 3 -> whiteBishops = bitboard;
-                case 4 -> whiteRooks = bitboard;
-                case 5 -> whiteQueens = bitboard;
-                case 6 -> whiteKing = bitboard;
-                default -> throw new IllegalArgumentException("Unknown piece type: " + pieceTypeBits);
-            }
-
-        } else {
-            switch (pieceTypeBits) {
-                case 1 -> blackPawns = bitboard;
-                case 2 -> blackKnights = bitboard;
-                case 3 -> blackBishops = bitboard;
-                case 4 -> blackRooks = bitboard;
-                case 5 -> blackQueens = bitboard;
-                case 6 -> blackKing = bitboard;
-                default -> throw new IllegalArgumentException("Unknown piece type: " + pieceTypeBits);
-            }
-        }
-
-        // After setting the bitboard, update the aggregated bitboards
-        updateAggregatedBitboards();
+    // Adds or removes the pieces of the mask, the aggregated bitboards are updated by the caller
+    private void togglePieces(int pieceTypeBits, int color, long mask) {
+        pieceBitboards[pieceIndex(pieceTypeBits, color)] ^= mask;
+        colorBitboards[color] ^= mask;
     }
     // Call these methods within the movePiece method when a king or rook moves
 
@@ -256,50 +358,285 @@ public class BitBoard {
     }
 
     public MoveList generateAllPossibleMoves(boolean whitesTurn) {
-        MoveList moves = new MoveList();
+        return new MoveList(moveBuffer, generateAllPossibleMoves(whitesTurn, moveBuffer, 0));
+    }
+
+    /**
+     * Writes the pseudo legal moves of the side into the array from {@code start} on.
+     *
+     * @return the index behind the last move
+     */
+    public int generateAllPossibleMoves(boolean whitesTurn, int[] moves, int start) {
+        int us = colorIndex(whitesTurn);
+        long pawns = pieces(PAWN, us);
+        long targets = ~colorBitboards[us];
+
+        int count = generatePawnMoves(whitesTurn, moves, start, pawns, targets);
+        count = generateEnPassantMoves(moves, count, pawns, whitesTurn);
+        count = generateKnightMoves(whitesTurn, moves, count, targets, 0L);
+        count = generateBishopMoves(whitesTurn, moves, count, targets, 0L);
+        count = generateRookMoves(whitesTurn, moves, count, targets, 0L);
+        count = generateQueenMoves(whitesTurn, moves, count, targets, 0L);
+        count = generateKingMoves(whitesTurn, moves, count, targets);
+        return addCastlingMoves(whitesTurn, Long.numberOfTrailingZeros(pieces(KING, us)), moves, count);
+    }
+
+    /**
+     * Generates the legal moves of the side to move, in the same order as {@link #getAllCurrentPossibleMoves()}.
+     */
+    public MoveList generateLegalMoves() {
+        return new MoveList(moveBuffer, generateLegalMoves(moveBuffer, 0));
+    }
+
+    /**
+     * Generates the legal moves of the side to move into the slice of the ply.
+     *
+     * @return the number of moves
+     */
+    public int generateLegalMoves(MoveStack stack, int ply) {
+        int start = stack.start(ply);
+        return stack.setEnd(ply, generateLegalMoves(stack.getMoves(), start));
+    }
+
+    /**
+     * Writes the legal moves of the side to move into the array from {@code start} on. The checking pieces, the
+     * squares that resolve a check and the rays of pinned pieces are calculated once per position, only king moves
+     * and en passant captures look at the position after the move.
+     *
+     * @return the index behind the last move
+     */
+    public int generateLegalMoves(int[] moves, int start) {
+        int count = start;
+        int us = colorIndex(whitesTurn);
+        long ownPieces = colorBitboards[us];
+        long opponentPieces = colorBitboards[us ^ 1];
+        long king = pieces(KING, us);
+        int kingIndex = Long.numberOfTrailingZeros(king);
+        updateCheckInfo();
+        long checkers = this.checkers;
+
+        // In double check only the king can move
+        if (Long.bitCount(checkers) < 2) {
+            long targets = ~ownPieces & checkMask;
+            long pinned = this.pinned;
+            long pawns = pieces(PAWN, us);
+
+            count = generatePawnMoves(whitesTurn, moves, count, pawns & ~pinned, targets);
+            for (long pinnedPawns = pawns & pinned; pinnedPawns != 0; pinnedPawns &= pinnedPawns - 1) {
+                long pinnedPawn = Long.lowestOneBit(pinnedPawns);
+                count = generatePawnMoves(whitesTurn, moves, count, pinnedPawn, targets & pinRays[Long.numberOfTrailingZeros(pinnedPawn)]);
+            }
+            // En passant removes two pieces from a line, so it is checked on the board after the move
+            int enPassantEnd = generateEnPassantMoves(moves, count, pawns, whitesTurn);
+            for (int i = count; i < enPassantEnd; i++) {
+                if (isLegal(moves[i])) {
+                    moves[count++] = moves[i];
+                }
+            }
+            count = generateKnightMoves(whitesTurn, moves, count, targets, pinned);
+            count = generateBishopMoves(whitesTurn, moves, count, targets, pinned);
+            count = generateRookMoves(whitesTurn, moves, count, targets, pinned);
+            count = generateQueenMoves(whitesTurn, moves, count, targets, pinned);
+        }
+
+        // The king must not step onto an attacked square, sliders see through the square it leaves
+        long occupiedWithoutKing = allPieces & ~king;
+        long safeSquares = 0L;
+        for (long kingTargets = KING_ATTACKS[kingIndex] & ~ownPieces; kingTargets != 0; kingTargets &= kingTargets - 1) {
+            int targetIndex = Long.numberOfTrailingZeros(kingTargets);
+            if ((attackersTo(targetIndex, occupiedWithoutKing) & opponentPieces) == 0) {
+                safeSquares |= 1L << targetIndex;
+            }
+        }
+        count = generateKingMoves(whitesTurn, moves, count, safeSquares);
+        if (checkers == 0) {
+            count = addCastlingMoves(whitesTurn, kingIndex, moves, count);
+        }
+
+        return count;
+    }
 
-        generatePawnMoves(whitesTurn, moves);
-        generateKnightMoves(whitesTurn, moves);
-        generateBishopMoves(whitesTurn, moves);
-        generateRookMoves(whitesTurn, moves);
-        generateQueenMoves(whitesTurn, moves);
-        generateKingMoves(whitesTurn, moves);
+    /**
+     * @return the opponent pieces giving check to the side to move
+     */
+    public long getCheckers() {
+        updateCheckInfo();
+        return checkers;
+    }
+
+    /**
+     * @return the pieces of the side to move that are pinned to their king
+     */
+    public long getPinnedPieces() {
+        updateCheckInfo();
+        return pinned;
+    }
+
+    /**
+     * @return true if the side to move is in check
+     */
+    public boolean isInCheck() {
+        return getCheckers() != 0;
+    }
+
+    /**
+     * Calculates the checkers, the squares that resolve a check and the pinned pieces of the side to move, unless
+     * they are still valid for the position.
+     */
+    private void updateCheckInfo() {
+        if (checkInfoValid && checkInfoWhitesTurn == whitesTurn) {
+            return;
+        }
+        int us = colorIndex(whitesTurn);
+        long opponentPieces = colorBitboards[us ^ 1];
+        int kingIndex = Long.numberOfTrailingZeros(pieces(KING, us));
+
+        checkers = attackersTo(kingIndex, allPieces) & opponentPieces;
+        if (checkers == 0) {
+            checkMask = -1L;
+        } else if (Long.bitCount(checkers) == 1) {
+            checkMask = checkers | lineBetweenIndices(kingIndex, Long.numberOfTrailingZeros(checkers));
+        } else {
+            checkMask = 0L; // double check, only the king can move
+        }
+        pinned = pinnedPieces(kingIndex, us, colorBitboards[us], opponentPieces);
+        checkInfoWhitesTurn = whitesTurn;
+        checkInfoValid = true;
+    }
+
+    /**
+     * Finds the own pieces that are the only piece between the king and an opponent slider and stores the squares
+     * they can still move to in {@link #pinRays}.
+     *
+     * @return the pinned pieces
+     */
+    private long pinnedPieces(int kingIndex, int us, long ownPieces, long opponentPieces) {
+        int them = us ^ 1;
+        long straightSliders = pieces(ROOK, them) | pieces(QUEEN, them);
+        long diagonalSliders = pieces(BISHOP, them) | pieces(QUEEN, them);
+
+        // Opponent sliders that would attack the king if the own pieces were not there
+        long pinners = (rookAttacks(kingIndex, opponentPieces) & straightSliders)
+                | (bishopAttacks(kingIndex, opponentPieces) & diagonalSliders);
+
+        long pinned = 0L;
+        while (pinners != 0) {
+            int pinnerIndex = Long.numberOfTrailingZeros(pinners);
+            pinners &= pinners - 1;
+
+            long between = lineBetweenIndices(kingIndex, pinnerIndex);
+            long blockers = between & allPieces;
+            if (Long.bitCount(blockers) == 1 && (blockers & ownPieces) != 0) {
+                pinned |= blockers;
+                pinRays[Long.numberOfTrailingZeros(blockers)] = between | (1L << pinnerIndex);
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Adds the captures, including en passant, and the promotions of the side to move to the list. The moves are
+     * pseudo legal, only the moves that are actually searched need to be checked with {@link #isLegal(int)}.
+     */
+    public void generateCaptures(boolean whitesTurn, MoveList moves) {
+        moves.addAll(moveBuffer, generateCaptures(whitesTurn, moveBuffer, 0));
+    }
+
+    /**
+     * Generates the pseudo legal captures and promotions of the side to move into the slice of the ply.
+     *
+     * @return the number of moves
+     */
+    public int generateCaptures(MoveStack stack, int ply) {
+        return stack.setEnd(ply, generateCaptures(whitesTurn, stack.getMoves(), stack.start(ply)));
+    }
+
+    /**
+     * @return the index behind the last move written from {@code start} on
+     * @see #generateCaptures(boolean, MoveList)
+     */
+    public int generateCaptures(boolean whitesTurn, int[] moves, int start) {
+        int us = colorIndex(whitesTurn);
+        long pawns = pieces(PAWN, us);
+        long targets = colorBitboards[us ^ 1];
+
+        // Pawn pushes only reach the target squares on the promotion rank
+        int count = generatePawnMoves(whitesTurn, moves, start, pawns, targets | RankMasks[whitesTurn ? 7 : 0]);
+        count = generateEnPassantMoves(moves, count, pawns, whitesTurn);
+        count = generateKnightMoves(whitesTurn, moves, count, targets, 0L);
+        count = generateBishopMoves(whitesTurn, moves, count, targets, 0L);
+        count = generateRookMoves(whitesTurn, moves, count, targets, 0L);
+        count = generateQueenMoves(whitesTurn, moves, count, targets, 0L);
+        return generateKingMoves(whitesTurn, moves, count, targets);
+    }
+
+    /**
+     * Decides with the check information of the position whether the pseudo legal move of the side to move leaves
+     * the own king in check. Castling and en passant are played on the board.
+     *
+     * @return true if the pseudo legal move does not leave the own king in check
+     */
+    public boolean isLegal(int move) {
+        if (MoveHelper.isWhitesMove(move) != whitesTurn || MoveHelper.isCastlingMove(move) || MoveHelper.isEnPassantMove(move)) {
+            return isLegalAfterMove(move);
+        }
+        updateCheckInfo();
+        int fromIndex = MoveHelper.deriveFromIndex(move);
+        int toIndex = MoveHelper.deriveToIndex(move);
+        int us = colorIndex(whitesTurn);
+        if (MoveHelper.derivePieceTypeBits(move) == KING) {
+            // Sliders see through the square the king leaves
+            return (attackersTo(toIndex, allPieces & ~(1L << fromIndex)) & colorBitboards[us ^ 1]) == 0;
+        }
+        long to = 1L << toIndex;
+        return (checkMask & to) != 0 && ((pinned & (1L << fromIndex)) == 0 || (pinRays[fromIndex] & to) != 0);
+    }
 
-        return moves;
+    private boolean isLegalAfterMove(int move) {
+        int color = colorIndex(MoveHelper.isWhitesMove(move));
+        // The position is the same after the undo, so is its check information
+        boolean checkInfoWasValid = checkInfoValid;
+        performMove(move);
+        boolean legal = !isSquareAttackedBy(Long.numberOfTrailingZeros(pieces(KING, color)), color ^ 1);
+        undoMove(move);
+        checkInfoValid = checkInfoWasValid;
+        return legal;
     }
 
     // Method to set the bitboard for a specific piece type and color
     void updateAggregatedBitboards() {
-        whitePieces = whitePawns | whiteKnights | whiteBishops | whiteRooks | whiteQueens | whiteKing;
-        blackPieces = blackPawns | blackKnights | blackBishops | blackRooks | blackQueens | blackKing;
-        allPieces = whitePieces | blackPieces;
+        checkInfoValid = false;
+        for (int color = WHITE; color <= BLACK; color++) {
+            long colorPieces = 0L;
+            for (int pieceTypeBits = PAWN; pieceTypeBits <= KING; pieceTypeBits++) {
+                colorPieces |= pieces(pieceTypeBits, color);
+            }
+            colorBitboards[color] = colorPieces;
+        }
+        allPieces = colorBitboards[WHITE] | colorBitboards[BLACK];
     }
 
-    private long generatePawnAttacksLeft() {
-        long pawns = whitesTurn ? whitePawns : blackPawns;
+    private long generatePawnAttacksLeft(boolean whitesTurn, long pawns) {
         return whitesTurn ? (pawns & ~FileMasks[0]) << 7 : (pawns & ~FileMasks[0]) >>> 9;
     }
 
-    private long generatePawnAttacksRight() {
-        long pawns = whitesTurn ? whitePawns : blackPawns;
+    private long generatePawnAttacksRight(boolean whitesTurn, long pawns) {
         return whitesTurn ? (pawns & ~FileMasks[7]) << 9 : (pawns & ~FileMasks[7]) >>> 7;
     }
 
-    private long generateAllPawnAttacks() {
-        return generatePawnAttacksLeft() | generatePawnAttacksRight();
-    }
-
-    private void generatePawnMoves(boolean whitesTurn, MoveList moves) {
-        long pawns = whitesTurn ? whitePawns : blackPawns;
-
-        long opponentPieces = whitesTurn ? blackPieces : whitePieces;
-        long emptySquares = ~(whitePieces | blackPieces);
+    /**
+     * Adds the pushes, captures and promotions of the given pawns that end on a target square, en passant is
+     * generated separately.
+     */
+    private int generatePawnMoves(boolean whitesTurn, int[] moves, int count, long pawns, long targets) {
+        long opponentPieces = colorBitboards[colorIndex(!whitesTurn)];
+        long emptySquares = ~allPieces;
 
         long singleStepForward = whitesTurn ? pawns << 8 : pawns >>> 8;
         singleStepForward &= emptySquares;
 
-        long attacksLeft = generatePawnAttacksLeft();
-        long attacksRight = generatePawnAttacksRight();
+        long attacksLeft = generatePawnAttacksLeft(whitesTurn, pawns);
+        long attacksRight = generatePawnAttacksRight(whitesTurn, pawns);
 
         long doubleStepForward;
         if (whitesTurn) {
@@ -308,21 +645,21 @@ public class BitBoard {
             doubleStepForward = ((pawns & RankMasks[6]) >>> 8 & emptySquares) >>> 8 & emptySquares;
         }
 
-        attacksLeft &= opponentPieces;
-        attacksRight &= opponentPieces;
-
-        addPawnMoves(moves, singleStepForward, 8, false, whitesTurn);
-        addPawnMoves(moves, doubleStepForward, 16, false, whitesTurn);
-        addPawnMoves(moves, attacksLeft, whitesTurn ? 7 : 9, true, whitesTurn);
-        addPawnMoves(moves, attacksRight, whitesTurn ? 9 : 7, true, whitesTurn);
-
-        if (lastMoveDoubleStepPawnIndex != 0) {
-            generateEnPassantMoves(moves, pawns, whitesTurn);
-        }
+        singleStepForward &= targets;
+        doubleStepForward &= targets;
+        attacksLeft &= opponentPieces & targets;
+        attacksRight &= opponentPieces & targets;
 
+        count = addPawnMoves(moves, count, singleStepForward, 8, false, whitesTurn);
+        count = addPawnMoves(moves, count, doubleStepForward, 16, false, whitesTurn);
+        count = addPawnMoves(moves, count, attacksLeft, whitesTurn ? 7 : 9, true, whitesTurn);
+        return addPawnMoves(moves, count, attacksRight, whitesTurn ? 9 : 7, true, whitesTurn);
     }
 
-    private void generateEnPassantMoves(MoveList moves, long pawns, boolean whitesTurn) {
+    private int generateEnPassantMoves(int[] moves, int count, long pawns, boolean whitesTurn) {
+        if (lastMoveDoubleStepPawnIndex == 0) {
+            return count;
+        }
         int enPassantRank = whitesTurn ? 5 : 2;
         int fileIndexOfDoubleSteppedPawn = lastMoveDoubleStepPawnIndex % 8;
         int enPassantTargetIndex = (enPassantRank * 8) + fileIndexOfDoubleSteppedPawn;
@@ -334,7 +671,7 @@ public class BitBoard {
             if (whitesTurn ?
                     ((leftAttackers << 9 & enPassantTargetSquare) != 0) :
                     ((leftAttackers >> 7 & enPassantTargetSquare) != 0)) {
-                addEnPassantMove(moves, Long.numberOfTrailingZeros(leftAttackers), enPassantTargetIndex, whitesTurn);
+                moves[count++] = enPassantMove(Long.numberOfTrailingZeros(leftAttackers), enPassantTargetIndex, whitesTurn);
             }
         }
 
@@ -343,18 +680,18 @@ public class BitBoard {
             if (whitesTurn ?
                     ((rightAttackers << 7 & enPassantTargetSquare) != 0) :
                     ((rightAttackers >> 9 & enPassantTargetSquare) != 0)) {
-                addEnPassantMove(moves, Long.numberOfTrailingZeros(rightAttackers), enPassantTargetIndex, whitesTurn);
+                moves[count++] = enPassantMove(Long.numberOfTrailingZeros(rightAttackers), enPassantTargetIndex, whitesTurn);
             }
         }
+        return count;
     }
 
 
-    private void addEnPassantMove(MoveList moves, int fromIndex, int toIndex, boolean whitesTurn) {
-        moves.add(
-                createMoveInt(fromIndex, toIndex, PieceType.PAWN, whitesTurn, true, false, true, null, PieceType.PAWN, false, false, lastMoveDoubleStepPawnIndex));
+    private int enPassantMove(int fromIndex, int toIndex, boolean whitesTurn) {
+        return createMoveInt(fromIndex, toIndex, PieceType.PAWN, whitesTurn, true, false, true, null, PieceType.PAWN, false, false, lastMoveDoubleStepPawnIndex);
     }
 
-    private void addPawnMoves(MoveList moves, long bitboard, int shift, boolean isCapture, boolean whitesTurn) {
+    private int addPawnMoves(int[] moves, int count, long bitboard, int shift, boolean isCapture, boolean whitesTurn) {
         int direction = whitesTurn ? 1 : -1;
         while (bitboard != 0) {
             int toIndex = Long.numberOfTrailingZeros(bitboard);
@@ -367,21 +704,22 @@ public class BitBoard {
 
             if (checkForInitialDoubleSquareMove(fromIndex, toIndex, direction)) {
                 if (isPromotion) {
-                    addPromotionMoves(moves, fromIndex, toIndex, whitesTurn, isCapture, capturedType);
+                    count = addPromotionMoves(moves, count, fromIndex, toIndex, whitesTurn, isCapture, capturedType);
                 } else {
-                    moves.add(createMoveInt(fromIndex, toIndex, PieceType.PAWN, whitesTurn, isCapture, false, false, null, capturedType, false, false, lastMoveDoubleStepPawnIndex));
+                    moves[count++] = createMoveInt(fromIndex, toIndex, PieceType.PAWN, whitesTurn, isCapture, false, false, null, capturedType, false, false, lastMoveDoubleStepPawnIndex);
                 }
             }
 
             bitboard &= bitboard - 1; // Clear the processed bit
         }
+        return count;
     }
 
-    private void addPromotionMoves(MoveList moves, int fromIndex, int toIndex, boolean whitesTurn, boolean isCapture, PieceType capturedType) {
-        PieceType[] promotionPieces = {PieceType.ROOK, PieceType.QUEEN, PieceType.BISHOP, PieceType.KNIGHT};
-        for (PieceType promotionPiece : promotionPieces) {
-            moves.add(createMoveInt(fromIndex, toIndex, PieceType.PAWN, whitesTurn, isCapture, false, false, promotionPiece, capturedType, false, false, lastMoveDoubleStepPawnIndex));
+    private int addPromotionMoves(int[] moves, int count, int fromIndex, int toIndex, boolean whitesTurn, boolean isCapture, PieceType capturedType) {
+        for (PieceType promotionPiece : PROMOTION_PIECES) {
+            moves[count++] = createMoveInt(fromIndex, toIndex, PieceType.PAWN, whitesTurn, isCapture, false, false, promotionPiece, capturedType, false, false, lastMoveDoubleStepPawnIndex);
         }
+        return count;
     }
 
 
@@ -410,41 +748,41 @@ public class BitBoard {
     }
 
 
-    private void generateKnightMoves(boolean whitesTurn, MoveList moves) {
-        long knights = whitesTurn ? whiteKnights : blackKnights;
-        long opponentPieces = whitesTurn ? blackPieces : whitePieces;
-        long ownPieces = whitesTurn ? whitePieces : blackPieces;
+    private int generateKnightMoves(boolean whitesTurn, int[] moves, int count, long targets, long pinned) {
+        int us = colorIndex(whitesTurn);
+        long knights = pieces(KNIGHT, us) & ~pinned; // A pinned knight can never move
+        long opponentPieces = colorBitboards[us ^ 1];
 
         while (knights != 0) {
             int knightIndex = Long.numberOfTrailingZeros(knights);
-            long potentialMoves = knightMoveTable[knightIndex] & ~ownPieces; // Pre-filter moves that land on own pieces
+            long potentialMoves = knightMoveTable[knightIndex] & targets; // Pre-filter moves that do not land on a target square
 
             while (potentialMoves != 0) {
                 int targetIndex = Long.numberOfTrailingZeros(potentialMoves);
                 boolean isCapture = (opponentPieces & (1L << targetIndex)) != 0;
 
                 PieceType capturedPieceType = isCapture ? getPieceTypeAtIndex(targetIndex) : null;
-                moves.add(createMoveInt(knightIndex, targetIndex, PieceType.KNIGHT, whitesTurn, isCapture, false, false, null, capturedPieceType, false, false, lastMoveDoubleStepPawnIndex));
+                moves[count++] = createMoveInt(knightIndex, targetIndex, PieceType.KNIGHT, whitesTurn, isCapture, false, false, null, capturedPieceType, false, false, lastMoveDoubleStepPawnIndex);
 
                 potentialMoves &= potentialMoves - 1; // Clear the lowest set bit
             }
 
             knights &= knights - 1; // Clear the lowest set bit
         }
+        return count;
     }
 
 
-    private void generateBishopMoves(boolean isWhite, MoveList moves) {
-        long bishops = isWhite ? whiteBishops : blackBishops;
-        long ownPieces = isWhite ? whitePieces : blackPieces;
-        long opponentPieces = isWhite ? blackPieces : whitePieces;
+    private int generateBishopMoves(boolean isWhite, int[] moves, int count, long targets, long pinned) {
+        int us = colorIndex(isWhite);
+        long bishops = pieces(BISHOP, us);
+        long opponentPieces = colorBitboards[us ^ 1];
 
         while (bishops != 0) {
             int bishopSquare = Long.numberOfTrailingZeros(bishops);
             bishops &= bishops - 1; // Remove the least significant bit representing a bishop
 
-            long occupancy = allPieces & bishopHelper.bishopMasks[bishopSquare];
-            long attacks = bishopHelper.calculateMovesUsingBishopMagic(bishopSquare, occupancy) & ~ownPieces;
+            long attacks = bishopAttacks(bishopSquare, allPieces) & targets & pinRayOf(bishopSquare, pinned);
 
             while (attacks != 0) {
                 int targetSquare = Long.numberOfTrailingZeros(attacks);
@@ -452,84 +790,83 @@ public class BitBoard {
 
 
                 boolean isCapture = (opponentPieces & (1L << targetSquare)) != 0;
-                moves.add(createMoveInt(bishopSquare, targetSquare, PieceType.BISHOP, isWhite, isCapture, false, false, null, isCapture ? getPieceTypeAtIndex(targetSquare) : null, false, false, lastMoveDoubleStepPawnIndex));
+                moves[count++] = createMoveInt(bishopSquare, targetSquare, PieceType.BISHOP, isWhite, isCapture, false, false, null, isCapture ? getPieceTypeAtIndex(targetSquare) : null, false, false, lastMoveDoubleStepPawnIndex);
             }
         }
+        return count;
     }
 
-    private void generateRookMoves(boolean whitesTurn, MoveList moves) {
-        long rooks = whitesTurn ? whiteRooks : blackRooks;
-        long ownPieces = whitesTurn ? whitePieces : blackPieces;
-        long opponentPieces = whitesTurn ? blackPieces : whitePieces;
+    private int generateRookMoves(boolean whitesTurn, int[] moves, int count, long targets, long pinned) {
+        int us = colorIndex(whitesTurn);
+        long rooks = pieces(ROOK, us);
+        long opponentPieces = colorBitboards[us ^ 1];
 
         while (rooks != 0) {
             int rookSquare = Long.numberOfTrailingZeros(rooks);
             rooks &= rooks - 1; // Remove the least significant bit representing a rook
 
-            // Use RookHelper to calculate rook moves using magic bitboards
-            long occupancy = allPieces & rookHelper.rookMasks[rookSquare];
-            long attacks = rookHelper.calculateMovesUsingRookMagic(rookSquare, occupancy) & ~ownPieces;
+            long attacks = rookAttacks(rookSquare, allPieces) & targets & pinRayOf(rookSquare, pinned);
 
             while (attacks != 0) {
                 int targetSquare = Long.numberOfTrailingZeros(attacks);
                 attacks &= attacks - 1; // Remove the least significant bit representing an attack
                 boolean isFirstRookMove = !hasRookMoved(rookSquare);
                 boolean isCapture = (opponentPieces & (1L << targetSquare)) != 0;
-                moves.add(createMoveInt(rookSquare, targetSquare, PieceType.ROOK, whitesTurn, isCapture, false, false, null, isCapture ? getPieceTypeAtIndex(targetSquare) : null, false, isFirstRookMove, lastMoveDoubleStepPawnIndex));
+                moves[count++] = createMoveInt(rookSquare, targetSquare, PieceType.ROOK, whitesTurn, isCapture, false, false, null, isCapture ? getPieceTypeAtIndex(targetSquare) : null, false, isFirstRookMove, lastMoveDoubleStepPawnIndex);
             }
         }
+        return count;
     }
 
-    private void generateQueenMoves(boolean whitesTurn, MoveList moves) {
-        long queens = whitesTurn ? whiteQueens : blackQueens;
-        long ownPieces = whitesTurn ? whitePieces : blackPieces;
-        long opponentPieces = whitesTurn ? blackPieces : whitePieces;
+    private int generateQueenMoves(boolean whitesTurn, int[] moves, int count, long targets, long pinned) {
+        int us = colorIndex(whitesTurn);
+        long queens = pieces(QUEEN, us);
+        long opponentPieces = colorBitboards[us ^ 1];
 
         while (queens != 0) {
             int queenSquare = Long.numberOfTrailingZeros(queens);
             queens &= queens - 1;
-            long occupancyBishop = allPieces & bishopHelper.bishopMasks[queenSquare];
-            long occupancyRook = allPieces & rookHelper.rookMasks[queenSquare];
-
-            long attacks = (
-                    bishopHelper.calculateMovesUsingBishopMagic(queenSquare, occupancyBishop) |
-                            rookHelper.calculateMovesUsingRookMagic(queenSquare, occupancyRook)
-            ) & ~ownPieces;
+            long attacks = queenAttacks(queenSquare, allPieces) & targets & pinRayOf(queenSquare, pinned);
             while (attacks != 0) {
                 int targetSquare = Long.numberOfTrailingZeros(attacks);
                 attacks &= attacks - 1; // Remove the least significant bit representing an attack
                 boolean isCapture = (opponentPieces & (1L << targetSquare)) != 0;
-                moves.add(createMoveInt(queenSquare, targetSquare, PieceType.QUEEN, whitesTurn, isCapture, false, false, null, isCapture ? getPieceTypeAtIndex(targetSquare) : null, false, false, lastMoveDoubleStepPawnIndex));
+                moves[count++] = createMoveInt(queenSquare, targetSquare, PieceType.QUEEN, whitesTurn, isCapture, false, false, null, isCapture ? getPieceTypeAtIndex(targetSquare) : null, false, false, lastMoveDoubleStepPawnIndex);
             }
         }
+        return count;
+    }
+
+    // All squares for a piece that is not pinned
+    private long pinRayOf(int square, long pinned) {
+        return (pinned & (1L << square)) != 0 ? pinRays[square] : -1L;
     }
 
-    private void generateKingMoves(boolean whitesTurn, MoveList moves) {
-        long kingBitboard = whitesTurn ? whiteKing : blackKing;
-        int kingPositionIndex = Long.numberOfTrailingZeros(kingBitboard);
-        long kingAttacks = KING_ATTACKS[kingPositionIndex];
+    private int generateKingMoves(boolean whitesTurn, int[] moves, int count, long targets) {
+        int us = colorIndex(whitesTurn);
+        int kingPositionIndex = Long.numberOfTrailingZeros(pieces(KING, us));
+        long kingAttacks = KING_ATTACKS[kingPositionIndex] & targets & ~colorBitboards[us];
+        long opponentPieces = colorBitboards[us ^ 1];
         boolean isFirstKingMove = hasKingNotMoved(whitesTurn);
 
         for (long possibleMoves = kingAttacks; possibleMoves != 0; possibleMoves &= possibleMoves - 1) {
             int targetIndex = Long.numberOfTrailingZeros(possibleMoves);
-            if (!isOccupiedByColor(targetIndex, whitesTurn)) {
-                boolean isCapture = isOccupiedByOpponent(targetIndex, whitesTurn);
-                moves.add(createMoveInt(kingPositionIndex, targetIndex, PieceType.KING, whitesTurn, isCapture, false, false, null, isCapture ? getPieceTypeAtIndex(targetIndex) : null, isFirstKingMove, false, lastMoveDoubleStepPawnIndex));
-            }
+            boolean isCapture = (opponentPieces & (1L << targetIndex)) != 0;
+            moves[count++] = createMoveInt(kingPositionIndex, targetIndex, PieceType.KING, whitesTurn, isCapture, false, false, null, isCapture ? getPieceTypeAtIndex(targetIndex) : null, isFirstKingMove, false, lastMoveDoubleStepPawnIndex);
         }
-
-        addCastlingMoves(whitesTurn, kingPositionIndex, moves);
+        return count;
     }
 
-    private void addCastlingMoves(boolean whitesTurn, int kingPositionIndex, MoveList moves) {
+    private int addCastlingMoves(boolean whitesTurn, int kingPositionIndex, int[] moves, int count) {
         if (canKingCastle(whitesTurn)) {
             if (canCastleKingside(whitesTurn, kingPositionIndex)) {
-                moves.add(createMoveInt(kingPositionIndex, kingPositionIndex + 2, PieceType.KING, whitesTurn, false, true, false, null, null, true, true, lastMoveDoubleStepPawnIndex));
+                moves[count++] = createMoveInt(kingPositionIndex, kingPositionIndex + 2, PieceType.KING, whitesTurn, false, true, false, null, null, true, true, lastMoveDoubleStepPawnIndex);
             }
             if (canCastleQueenside(whitesTurn, kingPositionIndex)) {
-                moves.add(createMoveInt(kingPositionIndex, kingPositionIndex - 2, PieceType.KING, whitesTurn, false, true, false, null, null, true, true, lastMoveDoubleStepPawnIndex));
+                moves[count++] = createMoveInt(kingPositionIndex, kingPositionIndex - 2, PieceType.KING, whitesTurn, false, true, false, null, null, true, true, lastMoveDoubleStepPawnIndex);
             }
         }
+        return count;
     }
 
 
@@ -582,67 +919,15 @@ public class BitBoard {
     }
 
     private boolean isSquareUnderAttack(int index, boolean colorWhite) {
-        boolean opponentColorWhite = !colorWhite;
-        return canPawnAttackIndex(index, opponentColorWhite) ||
-                canKnightAttackIndex(index, opponentColorWhite) ||
-                canBishopAttackIndex(index, opponentColorWhite) ||
-                canRookAttackIndex(index, opponentColorWhite) ||
-                canQueenAttackIndex(index, opponentColorWhite) ||
-                canKingAttackIndex(index, opponentColorWhite);
-    }
-
-    private boolean canPawnAttackIndex(int index, boolean colorWhite) {
-        // Bitboard of pawns of the given color
-        long pawnsBitboard = colorWhite ? whitePawns : blackPawns;
-
-        // Calculate potential attacker squares
-        long attackFromLeft = 0L, attackFromRight = 0L;
-        if (colorWhite) {
-            // For white pawns: check squares from which a black pawn could attack
-            attackFromLeft = (index % 8 != 0) ? (1L << (index - 9)) : 0;
-            attackFromRight = (index % 8 != 7) ? (1L << (index - 7)) : 0;
-        } else {
-            // For black pawns: check squares from which a white pawn could attack
-            attackFromLeft = (index % 8 != 0) ? (1L << (index + 7)) : 0;
-            attackFromRight = (index % 8 != 7) ? (1L << (index + 9)) : 0;
-        }
-
-        // Check if any of these squares is occupied by a pawn of the given color
-        return (pawnsBitboard & (attackFromLeft | attackFromRight)) != 0;
+        return isSquareAttackedBy(index, colorIndex(!colorWhite));
     }
 
-
-    private boolean canKnightAttackIndex(int index, boolean colorWhite) {
-        long knightsBitboard = colorWhite ? whiteKnights : blackKnights;
-        long knightAttacks = knightAttackBitmask(index);
-        return (knightAttacks & knightsBitboard) != 0;
-    }
-
-    private boolean canBishopAttackIndex(int index, boolean colorWhite) {
-        long bishopsBitboard = colorWhite ? whiteBishops : blackBishops;
-        long bishopAttacks = bishopAttackBitmask(index);
-        return (bishopAttacks & bishopsBitboard) != 0;
-    }
-
-    private boolean canRookAttackIndex(int index, boolean colorWhite) {
-        long rooksBitboard = colorWhite ? whiteRooks : blackRooks;
-        long rookAttacks = rookAttackBitmask(index);
-        return (rookAttacks & rooksBitboard) != 0;
-    }
-
-    private boolean canQueenAttackIndex(int index, boolean colorWhite) {
-        long queensBitboard = colorWhite ? whiteQueens : blackQueens;
-        long queenAttacks = queenAttackBitmask(index);
-        return (queenAttacks & queensBitboard) != 0;
-    }
-
-    private boolean canKingAttackIndex(int index, boolean colorWhite) {
-        long kingsBitboard = colorWhite ? whiteKing : blackKing;
-        long kingAttacks = KING_ATTACKS[index];
-        return (kingAttacks & kingsBitboard) != 0;
+    private boolean isSquareAttackedBy(int index, int color) {
+        return (attackersTo(index, allPieces) & colorBitboards[color]) != 0;
     }
 
     public void performMove(int move) {
+        checkInfoValid = false;
         int fromIndex = MoveHelper.deriveFromIndex(move); // Extract the first 6 bits
         int toIndex = MoveHelper.deriveToIndex(move); // Extract the next 6 bits
         int pieceTypeBits = MoveHelper.derivePieceTypeBits(move); // Extract the next 3 bits
@@ -651,11 +936,18 @@ public class BitBoard {
         boolean isEnPassantMove = MoveHelper.isEnPassantMove(move);
         boolean isCastlingMove = MoveHelper.isCastlingMove(move);
         int promotionPieceTypeBits = MoveHelper.derivePromotionPieceTypeBits(move); // Extract the next 3 bits
-
-        long pieceBitboard = intToPiecesBitboard(pieceTypeBits, isWhite);
+        int us = colorIndex(isWhite);
+        int capturedIndex = isEnPassantMove ? (isWhite ? toIndex - 8 : toIndex + 8) : toIndex;
+        int capturedPieceTypeBits = isCapture ? squares[capturedIndex] & ~BLACK_PIECE : 0;
+
+        pushUndoState(capturedPieceTypeBits);
+        boardStateHash ^= stateHash() ^ movedPiecesHash(move, capturedPieceTypeBits);
+        if (pieceTypeBits == PAWN || capturedPieceTypeBits == PAWN) {
+            pawnHash ^= movedPawnsHash(move, capturedPieceTypeBits);
+        }
 
         if (isCapture) {
-            clearSquare(toIndex, !isWhite);
+            togglePieces(capturedPieceTypeBits, us ^ 1, 1L << capturedIndex);
         }
 
         // If the move is a castling move, move both the king and the rook
@@ -675,109 +967,90 @@ public class BitBoard {
                 rookFromIndex = isWhite ? 0 : 56;
                 rookToIndex = rookFromIndex + 3;
             }
-            long rookBitboard = intToPiecesBitboard(4, isWhite);
-            rookBitboard = moveBit(rookBitboard, rookFromIndex, rookToIndex);
-            setBitboardForPiece(4, isWhite, rookBitboard);
+            togglePieces(ROOK, us, (1L << rookFromIndex) | (1L << rookToIndex));
 
             // Mark the rook as moved
             markRookAsMoved(rookFromIndex);
         }
 
-        // Move the piece
-        pieceBitboard = moveBit(pieceBitboard, fromIndex, toIndex);
-        setBitboardForPiece(pieceTypeBits, isWhite, pieceBitboard);
-
+        // Move the piece, a promoting pawn is replaced by the promotion piece on the target square
         if (promotionPieceTypeBits != 0) {
-            // Clear the pawn from the promotion square
-            clearSquare(toIndex, isWhite);
-
-            // Set the bitboard for the promotion piece
-            long promotionPieceBitboard = intToPiecesBitboard(promotionPieceTypeBits, isWhite);
-            promotionPieceBitboard |= (1L << toIndex); // Place the promotion piece on the promotion square
-            setBitboardForPiece(promotionPieceTypeBits, isWhite, promotionPieceBitboard);
+            togglePieces(PAWN, us, 1L << fromIndex);
+            togglePieces(promotionPieceTypeBits, us, 1L << toIndex);
+        } else {
+            togglePieces(pieceTypeBits, us, (1L << fromIndex) | (1L << toIndex));
         }
 
         // Mark the king as moved if it was a king move
-        if (pieceTypeBits == 6) {
+        if (pieceTypeBits == KING) {
             markKingAsMoved(isWhite);
         }
 
         //Mark rook as moved
-        if (pieceTypeBits == 4) {
+        if (pieceTypeBits == ROOK) {
             markRookAsMoved(fromIndex);
         }
 
-        if (pieceTypeBits == 1 && Math.abs(fromIndex / 8 - toIndex / 8) == 2) {
+        if (pieceTypeBits == PAWN && Math.abs(fromIndex / 8 - toIndex / 8) == 2) {
             lastMoveDoubleStepPawnIndex = toIndex;
         } else {
             lastMoveDoubleStepPawnIndex = 0;
         }
+        halfmoveClock = isCapture || pieceTypeBits == PAWN ? 0 : halfmoveClock + 1;
 
-        // Handle en passant capture
-        if (isEnPassantMove) {
-            // Clear the captured pawn for en passant
-            int capturedPawnIndex = isWhite ? toIndex - 8 : toIndex + 8;
-            clearSquare(capturedPawnIndex, !isWhite);
-        }
-        updateAggregatedBitboards();
+        allPieces = colorBitboards[WHITE] | colorBitboards[BLACK];
+        updateSquares(move, fromIndex, toIndex, pieceTypeBits, isWhite, promotionPieceTypeBits);
         whitesTurn = !whitesTurn;
+        boardStateHash ^= stateHash();
     }
 
-    public void clearSquare(int index, boolean isWhite) {
-        long mask = ~(1L << index);
-        if (isWhite) {
-            if ((whitePawns & (1L << index)) != 0L) whitePawns &= mask;
-            if ((whiteKnights & (1L << index)) != 0L) whiteKnights &= mask;
-            if ((whiteBishops & (1L << index)) != 0L) whiteBishops &= mask;
-            if ((whiteRooks & (1L << index)) != 0L) whiteRooks &= mask;
-            if ((whiteQueens & (1L << index)) != 0L) whiteQueens &= mask;  // Corrected line for queen
-            whiteKing &= mask; // Only clear if the king is actually on the square
-        } else {
-            if ((blackPawns & (1L << index)) != 0L) blackPawns &= mask;
-            if ((blackKnights & (1L << index)) != 0L) blackKnights &= mask;
-            if ((blackBishops & (1L << index)) != 0L) blackBishops &= mask;
-            if ((blackRooks & (1L << index)) != 0L) blackRooks &= mask;
-            if ((blackQueens & (1L << index)) != 0L) blackQueens &= mask;  // Corrected line for queen
-            blackKing &= mask; // Only clear if the king is actually on the square
+    private void updateSquares(int move, int fromIndex, int toIndex, int pieceTypeBits, boolean isWhite, int promotionPieceTypeBits) {
+        squares[fromIndex] = 0;
+        squares[toIndex] = squareValue(promotionPieceTypeBits != 0 ? promotionPieceTypeBits : pieceTypeBits, isWhite);
+        if (MoveHelper.isEnPassantMove(move)) {
+            squares[isWhite ? toIndex - 8 : toIndex + 8] = 0;
+        } else if (MoveHelper.isCastlingMove(move)) {
+            boolean kingside = toIndex > fromIndex;
+            squares[kingside ? toIndex + 1 : toIndex - 2] = 0;
+            squares[kingside ? toIndex - 1 : toIndex + 1] = squareValue(4, isWhite);
         }
-        updateAggregatedBitboards();
     }
 
+    private void restoreSquares(int move, int fromIndex, int toIndex, int pieceTypeBits, boolean isWhite, int capturedPieceTypeBits) {
+        squares[fromIndex] = squareValue(pieceTypeBits, isWhite);
+        squares[toIndex] = 0;
+        if (MoveHelper.isEnPassantMove(move)) {
+            squares[isWhite ? toIndex - 8 : toIndex + 8] = squareValue(1, !isWhite);
+        } else if (MoveHelper.isCapture(move)) {
+            squares[toIndex] = squareValue(capturedPieceTypeBits, !isWhite);
+        } else if (MoveHelper.isCastlingMove(move)) {
+            boolean kingside = toIndex > fromIndex;
+            squares[kingside ? toIndex + 1 : toIndex - 2] = squareValue(4, isWhite);
+            squares[kingside ? toIndex - 1 : toIndex + 1] = 0;
+        }
+    }
 
-    public PieceType getPieceTypeAtIndex(int index) {
-        long positionMask = 1L << index;
 
-        if ((whitePawns & positionMask) != 0) return PieceType.PAWN;
-        if ((blackPawns & positionMask) != 0) return PieceType.PAWN;
-        if ((whiteKnights & positionMask) != 0) return PieceType.KNIGHT;
-        if ((blackKnights & positionMask) != 0) return PieceType.KNIGHT;
-        if ((whiteBishops & positionMask) != 0) return PieceType.BISHOP;
-        if ((blackBishops & positionMask) != 0) return PieceType.BISHOP;
-        if ((whiteRooks & positionMask) != 0) return PieceType.ROOK;
-        if ((blackRooks & positionMask) != 0) return PieceType.ROOK;
-        if ((whiteQueens & positionMask) != 0) return PieceType.QUEEN;
-        if ((blackQueens & positionMask) != 0) return PieceType.QUEEN;
-        if ((whiteKing & positionMask) != 0) return PieceType.KING;
-        if ((blackKing & positionMask) != 0) return PieceType.KING;
+    /**
+     * @return the type of the piece on the square or null if it is empty
+     */
+    public PieceType getPieceTypeAtIndex(int index) {
+        return PIECE_TYPES[squares[index] & ~BLACK_PIECE];
+    }
 
-        // No piece found at this position
-        return null;
+    /**
+     * @return the piece type bits of the piece on the square, 0 if it is empty
+     */
+    public int getPieceTypeBitsAtIndex(int index) {
+        return squares[index] & ~BLACK_PIECE;
     }
 
     public Color getPieceColorAtIndex(int index) {
-        long positionMask = 1L << index;
-
-        // Check if the position is occupied by a white piece
-        if ((whitePieces & positionMask) != 0) {
-            return Color.WHITE;
+        int piece = squares[index];
+        if (piece == 0) {
+            return null; // No piece found at this position
         }
-        // Check if the position is occupied by a black piece
-        else if ((blackPieces & positionMask) != 0) {
-            return Color.BLACK;
-        }
-
-        // No piece found at this position
-        return null;
+        return (piece & BLACK_PIECE) == 0 ? Color.WHITE : Color.BLACK;
     }
 
     public boolean isOccupied(int index) {
@@ -786,15 +1059,7 @@ public class BitBoard {
     }
 
     public boolean isOccupiedByOpponent(int index, boolean colorWhite) {
-        long positionMask = 1L << index;
-
-        if (colorWhite) {
-            // Check if the position is occupied by any of the black pieces
-            return (blackPieces & positionMask) != 0;
-        } else {
-            // Check if the position is occupied by any of the white pieces
-            return (whitePieces & positionMask) != 0;
-        }
+        return (colorBitboards[colorIndex(!colorWhite)] & (1L << index)) != 0;
     }
 
     public boolean hasKingNotMoved(boolean whitesTurn) {
@@ -828,229 +1093,21 @@ public class BitBoard {
     }
 
     public boolean isOccupiedByPawn(int index, boolean whiteColor) {
-        // Create a bitmask for the position
-        long positionMask = 1L << index;
-
-        // Check if the position is occupied by a pawn of the given color
-        if (whiteColor) {
-            return (whitePawns & positionMask) != 0;
-        } else { // Color.BLACK
-            return (blackPawns & positionMask) != 0;
-        }
+        return (pieces(PAWN, colorIndex(whiteColor)) & (1L << index)) != 0;
     }
 
     public boolean isOccupiedByColor(int index, boolean colorWhite) {
-        // Convert the position to a bit index
-        long positionMask = 1L << index;
-
-        // Check if the position is occupied by a piece of the given color
-        if (colorWhite) {
-            return (whitePieces & positionMask) != 0;
-        } else { // Color.BLACK
-            return (blackPieces & positionMask) != 0;
-        }
+        return (colorBitboards[colorIndex(colorWhite)] & (1L << index)) != 0;
     }
 
     public boolean isInCheck(boolean whitesTurn) {
-        int kingPosition = findKingIndex(whitesTurn);
-
-        if (canQueenAttackKing(kingPosition, whitesTurn)) {
-            return true;
-        }
-        if (canRookAttackKing(kingPosition, whitesTurn)) {
-            return true;
-        }
-        if (canBishopAttackKing(kingPosition, whitesTurn)) {
-            return true;
-        }
-        if (canKnightAttackKing(kingPosition, whitesTurn)) {
-            return true;
-        }
-        if (canPawnAttackKing(kingPosition, whitesTurn)) {
-            return true;
-        }
-        return canKingAttackKing(kingPosition, whitesTurn);
-    }
-
-
-    public long generatePinMask(boolean whitesTurn) {
-        long kingPosition = whitesTurn ? whiteKing : blackKing;
-        long slidingPieces = whitesTurn ? (blackBishops | blackRooks | blackQueens) : (whiteBishops | whiteRooks | whiteQueens);
-
-        long pinMasks = 0L;
-
-        while (slidingPieces != 0) {
-            long slidingPiecePosition = Long.lowestOneBit(slidingPieces);
-            slidingPieces ^= slidingPiecePosition; // Remove the current sliding piece
-
-            long lineOfAttack = calculateLineOfAttack(slidingPiecePosition, kingPosition);
-            long piecesInBetween = lineOfAttack & (whitesTurn ? whitePieces : blackPieces);
-
-            if (Long.bitCount(piecesInBetween) == 1) {
-                long pinnedPiece = piecesInBetween & lineOfAttack;
-                long squaresBetweenPinnedAndKing = lineBetweenIndices(Long.numberOfTrailingZeros(pinnedPiece), Long.numberOfTrailingZeros(kingPosition));
-                long obstructingPieces = squaresBetweenPinnedAndKing & allPieces;
-
-                if (obstructingPieces == 0) {
-                    // There are no obstructing pieces (piece is pinned)
-                    pinMasks |= lineOfAttack;
-                    pinMasks &= whitesTurn ? whitePieces : blackPieces;
-                }
-            }
-        }
-
-        return pinMasks;
-    }
-
-
-    private long calculateLineOfAttack(long slidingPiecePosition, long kingPosition) {
-        long lineOfAttack = 0L;
-        int slidingPieceIndex = Long.numberOfTrailingZeros(slidingPiecePosition);
-        int kingIndex = Long.numberOfTrailingZeros(kingPosition);
-
-        // Determine the type of the sliding piece
-        if ((slidingPiecePosition & (whiteBishops | blackBishops)) != 0) {
-            // Bishop's line of attack
-            long occupancy = allPieces & bishopHelper.bishopMasks[slidingPieceIndex];
-            long attack = bishopHelper.calculateMovesUsingBishopMagic(slidingPieceIndex, occupancy);
-            lineOfAttack = attack & lineBetweenIndices(slidingPieceIndex, kingIndex);
-        } else if ((slidingPiecePosition & (whiteRooks | blackRooks)) != 0) {
-            // Rook's line of attack
-            long occupancy = allPieces & rookHelper.rookMasks[slidingPieceIndex];
-            long attack = rookHelper.calculateMovesUsingRookMagic(slidingPieceIndex, occupancy);
-            lineOfAttack = attack & lineBetweenIndices(slidingPieceIndex, kingIndex);
-        } else if ((slidingPiecePosition & (whiteQueens | blackQueens)) != 0) {
-            // Queen's line of attack (combination of rook and bishop)
-            long occupancyBishop = allPieces & bishopHelper.bishopMasks[slidingPieceIndex];
-            long occupancyRook = allPieces & rookHelper.rookMasks[slidingPieceIndex];
-            long attackDiagonal = bishopHelper.calculateMovesUsingBishopMagic(slidingPieceIndex, occupancyBishop);
-            long attackStraight = rookHelper.calculateMovesUsingRookMagic(slidingPieceIndex, occupancyRook);
-            lineOfAttack = (attackDiagonal | attackStraight) & lineBetweenIndices(slidingPieceIndex, kingIndex);
+        if (whitesTurn == this.whitesTurn) {
+            return isInCheck();
         }
-
-        return lineOfAttack;
-    }
-
-    private int findKingIndex(boolean whitesTurn) {
-        // Use bit operations to find the king's position on the board
-        // Assuming there's only one king per color on the board.
-        long kingBitboard = whitesTurn ? whiteKing : blackKing;
-        return Long.numberOfTrailingZeros(kingBitboard);
-    }
-
-    // Example for one attack check - similar methods needed for other piece types
-    private boolean canPawnAttackKing(int kingIndex, boolean kingColorWhite) {
-        int pawnAttackDirection = kingColorWhite ? 1 : -1;
-        int kingRank = kingIndex / 8;
-        int kingFile = kingIndex % 8;
-        boolean pawnColorBlack = !kingColorWhite; // Pawns that can attack must be of opposite color
-
-        int attackRank = kingRank + pawnAttackDirection;
-
-        if (attackRank < 0 || attackRank > 7) {
-            return false;
-        }
-
-        // Check for pawn attack from the left diagonal
-        if (kingFile > 0) {
-            int leftAttackIndex = attackRank * 8 + kingFile - 1;
-            if (isOccupiedByPawn(leftAttackIndex, pawnColorBlack)) {
-                return true;
-            }
-        }
-
-        // Check for pawn attack from the right diagonal
-        if (kingFile < 7) {
-            int rightAttackIndex = attackRank * 8 + kingFile + 1;
-            return isOccupiedByPawn(rightAttackIndex, pawnColorBlack);
-        }
-
-        return false;
-    }
-
-    private boolean canKnightAttackKing(int kingIndex, boolean kingColorWhite) {
-        long knightAttacks = knightAttackBitmask(kingIndex);
-        long opponentKnights = !kingColorWhite ? whiteKnights : blackKnights;
-        return (knightAttacks & opponentKnights) != 0;
-    }
-
-    private long knightAttackBitmask(int positionIndex) {
-        return KnightHelper.knightMoveTable[positionIndex];
-    }
-
-    private boolean canBishopAttackKing(int kingIndex, boolean kingColorWhite) {
-        long bishopAttacks = bishopAttackBitmask(kingIndex);
-
-        // Determine the opponent's bishops bitboard based on the king's color
-        long opponentBishops = kingColorWhite ? blackBishops : whiteBishops;
-
-        // Check if the opponent has bishops that can attack the king's position
-        return (bishopAttacks & opponentBishops) != 0;
-    }
-
-    private long bishopAttackBitmask(int positionIndex) {
-        long mask = bishopHelper.bishopMasks[positionIndex];
-        long magic = bishopHelper.bishopMagics[positionIndex];
-
-        // Calculate the index for the current occupancy
-        long index = ((allPieces & mask) * magic) >>> (64 - bishopHelper.bishopBits[positionIndex]);
-
-        // Retrieve the attacks from the precomputed table
-        return bishopHelper.bishopAttacks[positionIndex][(int) index];
-    }
-
-
-    private boolean canRookAttackKing(int kingIndex, boolean kingColorWhite) {
-        // Generate the rook attack bitmask from the king's position
-        long rookAttacks = rookAttackBitmask(kingIndex);
-
-        // Determine the opponent's rooks bitboard based on the king's color
-        long opponentRooks = kingColorWhite ? blackRooks : whiteRooks;
-
-        // Check if the opponent has rooks that can attack the king's position
-        return (rookAttacks & opponentRooks) != 0;
-    }
-
-    private long rookAttackBitmask(int positionIndex) {
-        long mask = rookHelper.rookMasks[positionIndex];
-        long magic = rookHelper.rookMagics[positionIndex];
-
-        // Calculate the index for the current occupancy
-        long index = ((allPieces & mask) * magic) >>> (64 - rookHelper.rookBits[positionIndex]);
-
-        // Retrieve the attacks from the precomputed table
-        return rookHelper.rookAttacks[positionIndex][(int) index];
-    }
-
-
-    private boolean canQueenAttackKing(int kingIndex, boolean kingColorWhite) {
-        long queenAttacks = queenAttackBitmask(kingIndex);
-
-        // Determine the opponent's queens bitboard based on the king's color
-        long opponentQueens = kingColorWhite ? blackQueens : whiteQueens;
-
-        // Check if the opponent has queens that can attack the king's position
-        return (queenAttacks & opponentQueens) != 0;
+        int color = colorIndex(whitesTurn);
+        return isSquareAttackedBy(Long.numberOfTrailingZeros(pieces(KING, color)), color ^ 1);
     }
 
-    private long queenAttackBitmask(int positionIndex) {
-        // The queen's attack bitmask is a combination of the rook's and bishop's attack bitmasks
-        long rookAttacks = rookAttackBitmask(positionIndex);
-        long bishopAttacks = bishopAttackBitmask(positionIndex);
-
-        // Combine both attack patterns
-        return rookAttacks | bishopAttacks;
-    }
-
-    private boolean canKingAttackKing(int kingIndex, boolean kingColorWhite) {
-        long kingAttacks = KING_ATTACKS[kingIndex];
-
-        // Determine the opponent's king bitboard based on the king's color
-        long opponentKing = kingColorWhite ? blackKing : whiteKing;
-
-        // Check if the opponent's king is on one of the squares that the current king can attack
-        return (kingAttacks & opponentKing) != 0;
-    }
 
     public void logBoard() {
         StringBuilder logBoard = new StringBuilder();
@@ -1058,10 +1115,9 @@ public class BitBoard {
         for (int rank = 8; rank >= 1; rank--) {
             for (char file = 'a'; file <= 'h'; file++) {
                 int index = bitIndex(file, rank);
-                long positionMask = 1L << index;
 
                 // Determine the piece at the current position
-                char pieceChar = getPieceChar(positionMask);
+                char pieceChar = getPieceChar(index);
 
                 // Add the piece character to the log board
                 logBoard.append(pieceChar).append(' ');
@@ -1072,30 +1128,13 @@ public class BitBoard {
         log.info(logBoard.toString()); // Log the current board state
     }
 
-    private char getPieceChar(long positionMask) {
-        char pieceChar = '.';
-        if ((whitePawns & positionMask) != 0) pieceChar = 'P';
-        else if ((blackPawns & positionMask) != 0) pieceChar = 'p';
-        else if ((whiteKnights & positionMask) != 0) pieceChar = 'N';
-        else if ((blackKnights & positionMask) != 0) pieceChar = 'n';
-        else if ((whiteBishops & positionMask) != 0) pieceChar = 'B';
-        else if ((blackBishops & positionMask) != 0) pieceChar = 'b';
-        else if ((whiteRooks & positionMask) != 0) pieceChar = 'R';
-        else if ((blackRooks & positionMask) != 0) pieceChar = 'r';
-        else if ((whiteQueens & positionMask) != 0) pieceChar = 'Q';
-        else if ((blackQueens & positionMask) != 0) pieceChar = 'q';
-        else if ((whiteKing & positionMask) != 0) pieceChar = 'K';
-        else if ((blackKing & positionMask) != 0) pieceChar = 'k';
-        return pieceChar;
-    }
-
-    // Helper method to move a piece on a bitboard
-    private long moveBit(long pieceBitboard, int fromIndex, int toIndex) {
-        // Clear the bit at the fromIndex
-        pieceBitboard &= ~(1L << fromIndex);
-        // Set the bit at the toIndex
-        pieceBitboard |= 1L << toIndex;
-        return pieceBitboard;
+    private char getPieceChar(int index) {
+        int piece = squares[index];
+        if (piece == 0) {
+            return '.';
+        }
+        char pieceChar = PIECE_TYPES[piece & ~BLACK_PIECE].getNotation();
+        return (piece & BLACK_PIECE) == 0 ? pieceChar : Character.toLowerCase(pieceChar);
     }
 
     private boolean doesMoveWrapAround(int fromIndex, int toIndex) {
@@ -1107,6 +1146,7 @@ public class BitBoard {
     }
 
     public void undoMove(int move) {
+        checkInfoValid = false;
         int fromIndex = MoveHelper.deriveFromIndex(move); // Extract the first 6 bits
         int toIndex = MoveHelper.deriveToIndex(move); // Extract the next 6 bits
         int pieceTypeBits = MoveHelper.derivePieceTypeBits(move); // Extract the next 3 bits
@@ -1115,69 +1155,83 @@ public class BitBoard {
         boolean isEnPassantMove = MoveHelper.isEnPassantMove(move);
         boolean isCastlingMove = MoveHelper.isCastlingMove(move);
         int promotionPieceTypeBits = MoveHelper.derivePromotionPieceTypeBits(move); // Extract the next 3 bits
-        int capturedPieceTypeBits = MoveHelper.deriveCapturedPieceTypeBits(move); // Extract the next 3 bits
-        boolean isKingFirstMove = MoveHelper.isKingFirstMove(move); // Extract the king's first move bit
-        boolean isRookFirstMove = MoveHelper.isRookFirstMove(move); // Extract the rook's first move bit
-        int doubleStepPawnIndex = MoveHelper.deriveLastMoveDoubleStepPawnIndex(move);
-
-        // 1. Handle Captured Piece Restoration
-        undoCapture(toIndex, capturedPieceTypeBits, isCapture, isWhite, isEnPassantMove);
+        int us = colorIndex(isWhite);
+        // Castling flags, en passant state, halfmove clock and hash come back from the undo record
+        int capturedPieceTypeBits = popUndoState();
+        if (pieceTypeBits == PAWN || capturedPieceTypeBits == PAWN) {
+            pawnHash ^= movedPawnsHash(move, capturedPieceTypeBits);
+        }
 
-        // 2. Handle Pawn Promotion
-        undoPromotion(promotionPieceTypeBits, fromIndex, toIndex, isWhite);
+        // Moving the piece back, a promoted piece turns back into the pawn
+        if (promotionPieceTypeBits != 0) {
+            togglePieces(promotionPieceTypeBits, us, 1L << toIndex);
+            togglePieces(PAWN, us, 1L << fromIndex);
+        } else {
+            togglePieces(pieceTypeBits, us, (1L << fromIndex) | (1L << toIndex));
+        }
 
-        // Moving the piece back...
-        // Ensure that if the piece is a king, it's handled correctly
-        undoPieceMove(pieceTypeBits, fromIndex, toIndex, isWhite);
+        // Restore the captured piece
+        if (isCapture) {
+            int capturedIndex = isEnPassantMove ? (isWhite ? toIndex - 8 : toIndex + 8) : toIndex;
+            togglePieces(capturedPieceTypeBits, us ^ 1, 1L << capturedIndex);
+        }
 
         // If the move was a castling move, move the rook back
         undoCastling(fromIndex, toIndex, isCastlingMove, isWhite);
 
-        // If the move was a double pawn push, remove the last move double step pawn position
-        undoGameState(fromIndex, toIndex, pieceTypeBits, isKingFirstMove, isRookFirstMove, isWhite, doubleStepPawnIndex);
-
-        // Update the aggregated bitboards
-        updateAggregatedBitboards();
+        allPieces = colorBitboards[WHITE] | colorBitboards[BLACK];
+        restoreSquares(move, fromIndex, toIndex, pieceTypeBits, isWhite, capturedPieceTypeBits);
         whitesTurn = !whitesTurn;
     }
 
-    private void undoGameState(int fromIndex, int toIndex, int pieceTypeBits, boolean isKingFirstMove, boolean isRookFirstMove, boolean isWhite, int doubleStepPawnIndex) {
-
-        lastMoveDoubleStepPawnIndex = doubleStepPawnIndex;
-
-        if (pieceTypeBits == 6 && isKingFirstMove) {
-            if (isWhite) {
-                whiteKingMoved = false;
-                if (isRookFirstMove) {
-                    if (toIndex == 6) { // 'g1'
-                        whiteRookH1Moved = false;
-                    } else if (toIndex == 2) { // 'c1'
-                        whiteRookA1Moved = false;
-                    }
-                }
-            } else {
-                blackKingMoved = false;
-                if (isRookFirstMove) {
-                    if (toIndex == 62) { // 'g8'
-                        blackRookH8Moved = false;
-                    } else if (toIndex == 58) { // 'c8'
-                        blackRookA8Moved = false;
-                    }
-                }
-            }
-        }
-
-        if (pieceTypeBits == 4 && isRookFirstMove) {
-            if (fromIndex == 0) { // 'a1'
-                whiteRookA1Moved = false;
-            } else if (fromIndex == 7) { // 'h1'
-                whiteRookH1Moved = false;
-            } else if (fromIndex == 56) { // 'a8'
-                blackRookA8Moved = false;
-            } else if (fromIndex == 63) { // 'h8'
-                blackRookH8Moved = false;
-            }
+    private void pushUndoState(int capturedPieceTypeBits) {
+        if (undoCount == undoStates.length) {
+            undoStates = Arrays.copyOf(undoStates, undoCount * 2);
+            undoHashes = Arrays.copyOf(undoHashes, undoCount * 2);
         }
+        undoStates[undoCount] = lastMoveDoubleStepPawnIndex
+                | castlingFlags() << UNDO_FLAGS_SHIFT
+                | capturedPieceTypeBits << UNDO_CAPTURED_SHIFT
+                | halfmoveClock << UNDO_HALFMOVE_SHIFT;
+        undoHashes[undoCount] = boardStateHash;
+        undoCount++;
+    }
+
+    /**
+     * Restores the state saved by the last move or null move.
+     *
+     * @return the piece type bits of the piece the move captured, 0 if none
+     */
+    private int popUndoState() {
+        undoCount--;
+        int undoState = undoStates[undoCount];
+        boardStateHash = undoHashes[undoCount];
+        lastMoveDoubleStepPawnIndex = undoState & 0x3F;
+        setCastlingFlags(undoState >>> UNDO_FLAGS_SHIFT);
+        halfmoveClock = undoState >>> UNDO_HALFMOVE_SHIFT;
+        return (undoState >>> UNDO_CAPTURED_SHIFT) & 0x07;
+    }
+
+    private int castlingFlags() {
+        return (whiteKingMoved ? 1 : 0)
+                | (blackKingMoved ? 2 : 0)
+                | (whiteRookA1Moved ? 4 : 0)
+                | (whiteRookH1Moved ? 8 : 0)
+                | (blackRookA8Moved ? 16 : 0)
+                | (blackRookH8Moved ? 32 : 0)
+                | (whiteKingHasCastled ? 64 : 0)
+                | (blackKingHasCastled ? 128 : 0);
+    }
+
+    private void setCastlingFlags(int flags) {
+        whiteKingMoved = (flags & 1) != 0;
+        blackKingMoved = (flags & 2) != 0;
+        whiteRookA1Moved = (flags & 4) != 0;
+        whiteRookH1Moved = (flags & 8) != 0;
+        blackRookA8Moved = (flags & 16) != 0;
+        blackRookH8Moved = (flags & 32) != 0;
+        whiteKingHasCastled = (flags & 64) != 0;
+        blackKingHasCastled = (flags & 128) != 0;
     }
 
     private void undoCastling(int fromIndex, int toIndex, boolean isCastling, boolean isWhite) {
@@ -1185,11 +1239,6 @@ public class BitBoard {
             // Determine if this is kingside or queenside castling
             boolean kingside = toIndex > fromIndex;
             int rookFromIndex, rookToIndex;
-            if (isWhite) {
-                whiteKingHasCastled = false;
-            } else {
-                blackKingHasCastled = false;
-            }
             if (kingside) {
                 rookToIndex = isWhite ? 7 : 63;
                 rookFromIndex = rookToIndex - 2;
@@ -1198,58 +1247,125 @@ public class BitBoard {
                 rookFromIndex = rookToIndex + 3;
             }
             // Move the rook back
-            long rookBitboard = intToPiecesBitboard(4, isWhite);
-            rookBitboard = moveBit(rookBitboard, rookFromIndex, rookToIndex);
-            setBitboardForPiece(4, isWhite, rookBitboard);
+            togglePieces(ROOK, colorIndex(isWhite), (1L << rookFromIndex) | (1L << rookToIndex));
         }
     }
 
-    private void undoPieceMove(int pieceTypeBits, int fromIndex, int toIndex, boolean isWhite) {
-        long pieceBitboard = intToPiecesBitboard(pieceTypeBits, isWhite);
-        pieceBitboard = moveBit(pieceBitboard, toIndex, fromIndex);
-        setBitboardForPiece(pieceTypeBits, isWhite, pieceBitboard);
+
+    /**
+     * Passes the turn to the opponent without moving a piece, for null move pruning.
+     * Taken back with {@link #undoNullMove()}.
+     */
+    public void performNullMove() {
+        checkInfoValid = false;
+        pushUndoState(0);
+        boardStateHash ^= stateHash();
+        lastMoveDoubleStepPawnIndex = 0;
+        halfmoveClock++;
+        whitesTurn = !whitesTurn;
+        boardStateHash ^= stateHash();
     }
 
-    private void undoPromotion(int promotionPieceTypeBits, int fromIndex, int toIndex, boolean isWhite) {
-        if (promotionPieceTypeBits != 0) {
-            long promotedPieceBitboard = intToPiecesBitboard(promotionPieceTypeBits, isWhite);
-            // Remove promoted piece
-            promotedPieceBitboard &= ~(1L << toIndex);
-            setBitboardForPiece(promotionPieceTypeBits, isWhite, promotedPieceBitboard);
+    public void undoNullMove() {
+        checkInfoValid = false;
+        popUndoState();
+        whitesTurn = !whitesTurn;
+    }
 
-            // Re-add the pawn
-            long pawnBitboard = intToPiecesBitboard(1, isWhite);
-            pawnBitboard |= 1L << fromIndex;
-            setBitboardForPiece(1, isWhite, pawnBitboard);
+    /**
+     * @return true if the side has a knight, bishop, rook or queen, without them zugzwang is likely
+     */
+    public boolean hasNonPawnMaterial(boolean white) {
+        int color = colorIndex(white);
+        return (colorBitboards[color] & ~pieces(PAWN, color) & ~pieces(KING, color)) != 0;
+    }
+
+    /**
+     * Static exchange evaluation: the material the side making the capture wins or loses on the target square if
+     * both sides keep recapturing with their least valuable attacker and may stop whenever that is better.
+     * Pins and checks are ignored, sliders behind a capturing piece join the exchange as x-ray attackers.
+     *
+     * @return the material balance of the exchange in millipawns, negative if the capture loses material
+     */
+    public int staticExchangeEvaluation(int move) {
+        int fromIndex = MoveHelper.deriveFromIndex(move);
+        int toIndex = MoveHelper.deriveToIndex(move);
+        boolean white = MoveHelper.isWhitesMove(move);
+
+        long occupied = allPieces & ~(1L << fromIndex);
+        if (MoveHelper.isEnPassantMove(move)) {
+            occupied &= ~(1L << (white ? toIndex - 8 : toIndex + 8));
         }
-    }
 
-    private void undoCapture(int toIndex, int capturedPieceTypeBits, boolean isCapture, boolean isWhite, boolean isEnPassant) {
-        if (isCapture) {
-            int enPassantModifier = 0;
-            if (isEnPassant) {
-                // En passant capture has occurred
-                enPassantModifier = isWhite ? -8 : 8;  // Modifier based on pawn color
-                lastMoveDoubleStepPawnIndex = toIndex + enPassantModifier;
+        int[] gains = seeGains;
+        gains[0] = SEE_PIECE_VALUES[MoveHelper.deriveCapturedPieceTypeBits(move)];
+        int pieceOnTarget = SEE_PIECE_VALUES[MoveHelper.derivePieceTypeBits(move)];
+        int promotionPieceTypeBits = MoveHelper.derivePromotionPieceTypeBits(move);
+        if (promotionPieceTypeBits != 0) {
+            pieceOnTarget = SEE_PIECE_VALUES[promotionPieceTypeBits];
+            gains[0] += pieceOnTarget - Score.PAWN_VALUE;
+        }
+
+        boolean side = !white;
+        int depth = 0;
+        while (depth < gains.length - 1) {
+            long attackers = attackersTo(toIndex, occupied) & occupied & colorBitboards[colorIndex(side)];
+            if (attackers == 0) {
+                break;
+            }
+            int attackerTypeBits = 1;
+            long attacker = attackers & intToPiecesBitboard(attackerTypeBits, side);
+            while (attacker == 0) {
+                attacker = attackers & intToPiecesBitboard(++attackerTypeBits, side);
+            }
+
+            long occupiedAfterCapture = occupied & ~Long.lowestOneBit(attacker);
+            if (attackerTypeBits == KING && (attackersTo(toIndex, occupiedAfterCapture) & occupiedAfterCapture & colorBitboards[colorIndex(!side)]) != 0) {
+                break; // the king cannot capture on a defended square
+            }
+
+            depth++;
+            gains[depth] = pieceOnTarget - gains[depth - 1];
+            if (Math.max(-gains[depth - 1], gains[depth]) < 0) {
+                break; // the result does not depend on the rest of the sequence
             }
+            occupied = occupiedAfterCapture;
+            pieceOnTarget = SEE_PIECE_VALUES[attackerTypeBits];
+            side = !side;
+        }
 
-            // Directly update the bitboard of the captured piece
-            setBitboardForPiece(capturedPieceTypeBits, !isWhite, intToPiecesBitboard(capturedPieceTypeBits, !isWhite) | (1L << (toIndex + enPassantModifier)));
+        while (depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+            depth--;
         }
+        return gains[0];
     }
 
+    /**
+     * @return all pieces of both colors attacking the square on the given occupancy, pieces removed from the
+     * occupancy still show up and have to be masked out by the caller
+     */
+    private long attackersTo(int index, long occupied) {
+        long queens = pieces(QUEEN, WHITE) | pieces(QUEEN, BLACK);
+        long diagonalSliders = pieces(BISHOP, WHITE) | pieces(BISHOP, BLACK) | queens;
+        long straightSliders = pieces(ROOK, WHITE) | pieces(ROOK, BLACK) | queens;
+        return (PAWN_ATTACKS[BLACK][index] & pieces(PAWN, WHITE))
+                | (PAWN_ATTACKS[WHITE][index] & pieces(PAWN, BLACK))
+                | (knightMoveTable[index] & (pieces(KNIGHT, WHITE) | pieces(KNIGHT, BLACK)))
+                | (KING_ATTACKS[index] & (pieces(KING, WHITE) | pieces(KING, BLACK)))
+                | (bishopAttacks(index, occupied) & diagonalSliders)
+                | (rookAttacks(index, occupied) & straightSliders);
+    }
 
     public boolean isEndgame() {
         // Check if both queens are off the board
-        if (blackQueens == 0 && whiteQueens == 0 && blackRooks == 0 && whiteRooks == 0) {
+        if ((pieces(QUEEN, WHITE) | pieces(QUEEN, BLACK) | pieces(ROOK, WHITE) | pieces(ROOK, BLACK)) == 0) {
             return true;
         }
 
         // Count the total number of major and minor pieces on the board using bit counts
-        int totalPieces = Long.bitCount(whiteKnights) + Long.bitCount(blackKnights) +
-                Long.bitCount(whiteBishops) + Long.bitCount(blackBishops) +
-                Long.bitCount(whiteRooks) + Long.bitCount(blackRooks) +
-                Long.bitCount(whiteQueens) + Long.bitCount(blackQueens);
+        long kingsAndPawns = pieces(PAWN, WHITE) | pieces(PAWN, BLACK) | pieces(KING, WHITE) | pieces(KING, BLACK);
+        int totalPieces = Long.bitCount(allPieces & ~kingsAndPawns);
 
         // Consider it endgame if there are fewer than a certain number of pieces
         final int ENDGAME_PIECE_THRESHOLD = 6;
@@ -1261,20 +1377,8 @@ public class BitBoard {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         BitBoard bitBoard = (BitBoard) o;
-        return whitePawns == bitBoard.whitePawns &&
-                blackPawns == bitBoard.blackPawns &&
-                whiteKnights == bitBoard.whiteKnights &&
-                blackKnights == bitBoard.blackKnights &&
-                whiteBishops == bitBoard.whiteBishops &&
-                blackBishops == bitBoard.blackBishops &&
-                whiteRooks == bitBoard.whiteRooks &&
-                blackRooks == bitBoard.blackRooks &&
-                whiteQueens == bitBoard.whiteQueens &&
-                blackQueens == bitBoard.blackQueens &&
-                whiteKing == bitBoard.whiteKing &&
-                blackKing == bitBoard.blackKing &&
-                whitePieces == bitBoard.whitePieces &&
-                blackPieces == bitBoard.blackPieces &&
+        return Arrays.equals(pieceBitboards, bitBoard.pieceBitboards) &&
+                Arrays.equals(colorBitboards, bitBoard.colorBitboards) &&
                 allPieces == bitBoard.allPieces &&
                 whiteKingMoved == bitBoard.whiteKingMoved &&
                 blackKingMoved == bitBoard.blackKingMoved &&
@@ -1286,43 +1390,110 @@ public class BitBoard {
 
     @Override
     public int hashCode() {
-        return Objects.hash(whitePawns, blackPawns, whiteKnights, blackKnights, whiteBishops, blackBishops,
-                whiteRooks, blackRooks, whiteQueens, blackQueens, whiteKing, blackKing,
-                whitePieces, blackPieces, allPieces, whiteKingMoved, blackKingMoved,
+        return 31 * Arrays.hashCode(pieceBitboards) + Objects.hash(allPieces, whiteKingMoved, blackKingMoved,
                 whiteRookA1Moved, whiteRookH1Moved, blackRookA8Moved, blackRookH8Moved,
                 lastMoveDoubleStepPawnIndex);
     }
 
-    private PieceType getPieceTypeAtSquare(int square) {
+    public long getBoardStateHash() {
+        assert boardStateHash == calculateBoardStateHash() : "Incremental hash differs from the calculated hash";
+        return boardStateHash;
+    }
 
-        return getPieceTypeAtIndex(square);
+    public long getPawnHash() {
+        assert pawnHash == calculatePawnHash() : "Incremental pawn hash differs from the calculated pawn hash";
+        return pawnHash;
     }
 
-    private Color getPieceColorAtSquare(int square) {
-        return getPieceColorAtIndex(square);
+    /**
+     * @return the hash of the pieces that change squares with the move, the same before and after it
+     */
+    private static long movedPiecesHash(int move, int capturedPieceTypeBits) {
+        int fromIndex = MoveHelper.deriveFromIndex(move);
+        int toIndex = MoveHelper.deriveToIndex(move);
+        int pieceTypeBits = MoveHelper.derivePieceTypeBits(move);
+        boolean isWhite = MoveHelper.isWhitesMove(move);
+        int promotionPieceTypeBits = MoveHelper.derivePromotionPieceTypeBits(move);
+
+        long hash = ZobristTable.getPieceSquareHash(zobristPieceIndex(pieceTypeBits, isWhite), fromIndex)
+                ^ ZobristTable.getPieceSquareHash(zobristPieceIndex(promotionPieceTypeBits != 0 ? promotionPieceTypeBits : pieceTypeBits, isWhite), toIndex);
+
+        if (MoveHelper.isCapture(move)) {
+            int capturedIndex = MoveHelper.isEnPassantMove(move) ? (isWhite ? toIndex - 8 : toIndex + 8) : toIndex;
+            hash ^= ZobristTable.getPieceSquareHash(zobristPieceIndex(capturedPieceTypeBits, !isWhite), capturedIndex);
+        } else if (MoveHelper.isCastlingMove(move)) {
+            boolean kingside = toIndex > fromIndex;
+            int rookFromIndex = kingside ? (isWhite ? 7 : 63) : (isWhite ? 0 : 56);
+            int rookToIndex = kingside ? rookFromIndex - 2 : rookFromIndex + 3;
+            int rookIndex = zobristPieceIndex(4, isWhite);
+            hash ^= ZobristTable.getPieceSquareHash(rookIndex, rookFromIndex) ^ ZobristTable.getPieceSquareHash(rookIndex, rookToIndex);
+        }
+        return hash;
     }
 
-    private int getPieceIndex(PieceType pieceType, Color pieceColor) {
-        int index = pieceType.ordinal() * 2; // There are two colors for each piece type
-        if (pieceColor == Color.BLACK) {
-            index++; // Add 1 for black pieces
+    /**
+     * @return the hash of the pawns that change squares with the move, a promoting pawn leaves the board
+     */
+    private static long movedPawnsHash(int move, int capturedPieceTypeBits) {
+        int toIndex = MoveHelper.deriveToIndex(move);
+        boolean isWhite = MoveHelper.isWhitesMove(move);
+        long hash = 0;
+        if (MoveHelper.derivePieceTypeBits(move) == PAWN) {
+            hash ^= ZobristTable.getPieceSquareHash(zobristPieceIndex(PAWN, isWhite), MoveHelper.deriveFromIndex(move));
+            if (MoveHelper.derivePromotionPieceTypeBits(move) == 0) {
+                hash ^= ZobristTable.getPieceSquareHash(zobristPieceIndex(PAWN, isWhite), toIndex);
+            }
+        }
+        if (capturedPieceTypeBits == PAWN) {
+            int capturedIndex = MoveHelper.isEnPassantMove(move) ? (isWhite ? toIndex - 8 : toIndex + 8) : toIndex;
+            hash ^= ZobristTable.getPieceSquareHash(zobristPieceIndex(PAWN, !isWhite), capturedIndex);
         }
-        return index;
+        return hash;
     }
 
-    public long getBoardStateHash() {
+    // Piece type ordinal times two, plus one for black
+    private static int zobristPieceIndex(int pieceTypeBits, boolean isWhite) {
+        return (pieceTypeBits - 1) * 2 + (isWhite ? 0 : 1);
+    }
+
+    /**
+     * Calculates the Zobrist hash of the pawns from scratch, with the same keys as the hash of the position.
+     */
+    public long calculatePawnHash() {
+        long hash = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            long pawns = pieces(PAWN, color);
+            while (pawns != 0) {
+                hash ^= ZobristTable.getPieceSquareHash(zobristPieceIndex(PAWN, color == WHITE), Long.numberOfTrailingZeros(pawns));
+                pawns &= pawns - 1;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Calculates the Zobrist hash of the position from scratch.
+     */
+    public long calculateBoardStateHash() {
         long hash = 0;
 
         // Iterate over all squares and XOR the hash with the piece hash values
         for (int square = 0; square < 64; square++) {
-            PieceType pieceType = getPieceTypeAtSquare(square);
-            Color pieceColor = getPieceColorAtSquare(square);
-            if (pieceType != null && pieceColor != null) {
-                int pieceIndex = getPieceIndex(pieceType, pieceColor); // You need to implement this method
-                hash ^= ZobristTable.getPieceSquareHash(pieceIndex, square);
+            int piece = squares[square];
+            if (piece != 0) {
+                hash ^= ZobristTable.getPieceSquareHash(zobristPieceIndex(piece & ~BLACK_PIECE, (piece & BLACK_PIECE) == 0), square);
             }
         }
 
+        return hash ^ stateHash();
+    }
+
+    /**
+     * @return the hash of the castling rights, the en passant state and the side to move
+     */
+    private long stateHash() {
+        long hash = 0;
+
         // Include castling rights in the hash
         if (!whiteKingMoved) {
             if (!whiteRookH1Moved) {
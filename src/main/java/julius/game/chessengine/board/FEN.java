@@ -108,8 +108,9 @@ public class FEN {
         // You'll need to parse the other FEN parts like castling availability, en passant, etc.
 
         // Set castling and en passant flags...
-        boolean whiteKingMoved = !parts[2].contains("K");
-        boolean blackKingMoved = !parts[2].contains("k");
+        // The king keeps its castling rights if it may castle to either side
+        boolean whiteKingMoved = !parts[2].contains("K") && !parts[2].contains("Q");
+        boolean blackKingMoved = !parts[2].contains("k") && !parts[2].contains("q");
         boolean whiteRookA1Moved = !parts[2].contains("Q");
         boolean whiteRookH1Moved = !parts[2].contains("K");
         boolean blackRookA8Moved = !parts[2].contains("q");
@@ -124,6 +125,9 @@ public class FEN {
             lastMoveDoubleStepPawnIndex = rank * 8 + file;
         }
 
+        // Moves since the last capture or pawn move, some FENs end after the en passant square
+        int halfmoveClock = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
+
         // Constants for starting positions (assuming 0-based indexing)
         boolean whiteKingHasCastled = false;
         boolean blackKingHasCastled = false;
@@ -138,7 +142,7 @@ public class FEN {
         }
 
         // Pass these inferred values to the BitBoard constructor
-        return new BitBoard(whitesTurn, whitePawns, blackPawns, whiteKnights, blackKnights, whiteBishops, blackBishops, whiteRooks, blackRooks, whiteQueens, blackQueens, whiteKing, blackKing, whitePieces, blackPieces, allPieces, lastMoveDoubleStepPawnIndex, whiteKingMoved, blackKingMoved, whiteRookA1Moved, whiteRookH1Moved, blackRookA8Moved, blackRookH8Moved, whiteKingHasCastled, blackKingHasCastled);
+        return new BitBoard(whitesTurn, whitePawns, blackPawns, whiteKnights, blackKnights, whiteBishops, blackBishops, whiteRooks, blackRooks, whiteQueens, blackQueens, whiteKing, blackKing, whitePieces, blackPieces, allPieces, lastMoveDoubleStepPawnIndex, whiteKingMoved, blackKingMoved, whiteRookA1Moved, whiteRookH1Moved, blackRookA8Moved, blackRookH8Moved, whiteKingHasCastled, blackKingHasCastled, halfmoveClock);
     }
 
 }
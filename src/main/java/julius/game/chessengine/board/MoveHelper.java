@@ -96,6 +96,16 @@ public class MoveHelper {
         return moveInt;
     }
 
+    /**
+     * Packs the move into 16 bits: from and to square, the special property and the promotion piece type bits minus
+     * two. Everything else follows from the position the move is played in, where a pawn reaching the last rank
+     * with promotion bits 0 promotes to a knight.
+     */
+    public static int toCompactMove(int move) {
+        int promotionPieceTypeBits = derivePromotionPieceTypeBits(move);
+        return (move & 0xFFF) | deriveSpecialProperty(move) << 12 | (promotionPieceTypeBits != 0 ? promotionPieceTypeBits - 2 : 0) << 14;
+    }
+
     public static int convertStringToIndex(String positionStr) {
         if (positionStr.length() != 2) {
             throw new IllegalArgumentException("Invalid position string: " + positionStr);
@@ -150,7 +160,7 @@ public class MoveHelper {
         };
     }
 
-    public static boolean isPawnPromotionMove(Integer moveInt) {
+    public static boolean isPawnPromotionMove(int moveInt) {
         int promotionPieceTypeBits = derivePromotionPieceTypeBits(moveInt);
         return promotionPieceTypeBits != 0;
     }
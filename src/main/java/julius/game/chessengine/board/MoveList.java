@@ -9,7 +9,7 @@ public class MoveList {
     private int[] moves;
     private int moveCount;
     private static final int INITIAL_SIZE = 30;
-    private static final int MAX_SIZE = 218; // Maximum number of legal moves
+    public static final int MAX_SIZE = 256; // Room for the pseudo legal moves of any position, at most 218 are legal
 
     private String stringRepresentation;
     private boolean isStringRepresentationStale = true;
@@ -20,6 +20,12 @@ public class MoveList {
         this.moveCount = 0;
     }
 
+    // Copies the first moves of the array, for lists generated into a buffer
+    public MoveList(int[] moves, int count) {
+        this.moves = Arrays.copyOf(moves, Math.max(count, 1));
+        this.moveCount = count;
+    }
+
     // Deep copy constructor
     public MoveList(MoveList original) {
         this.moveCount = original.moveCount;
@@ -29,20 +35,25 @@ public class MoveList {
 
     public void add(int move) {
         if (moveCount >= moves.length) {
-            resizeArray();
-        }
-        if (moveCount < MAX_SIZE) {
-            moves[moveCount] = move;
-            moveCount++;
+            resizeArray(moveCount + 1);
         }
+        moves[moveCount] = move;
+        moveCount++;
         isStringRepresentationStale = true;
     }
 
-    private void resizeArray() {
-        if (moves.length >= MAX_SIZE) {
-            return; // Do not resize beyond the maximum size
+    // Appends the first count moves of the array
+    public void addAll(int[] moves, int count) {
+        if (moveCount + count > this.moves.length) {
+            resizeArray(moveCount + count);
         }
-        int newSize = Math.min(moves.length * 2, MAX_SIZE);
+        System.arraycopy(moves, 0, this.moves, moveCount, count);
+        moveCount += count;
+        isStringRepresentationStale = true;
+    }
+
+    private void resizeArray(int minimumSize) {
+        int newSize = Math.max(moves.length * 2, minimumSize);
         int[] newArray = new int[newSize];
         System.arraycopy(moves, 0, newArray, 0, moveCount); // Copy only used elements
         moves = newArray;
@@ -0,0 +1,57 @@
+package julius.game.chessengine.board;
+
+/**
+ * The moves of every ply of a search in one preallocated array. The generators write the moves of a ply straight
+ * into its slice and the search walks the slice, so a search allocates nothing for its moves. The ordering scores
+ * of the moves are kept next to them at the same index.
+ */
+public class MoveStack {
+
+    public static final int MAX_MOVES_PER_PLY = MoveList.MAX_SIZE;
+
+    private final int[] moves;
+    private final int[] scores;
+    private final int[] ends;
+
+    public MoveStack(int maxPly) {
+        this.moves = new int[maxPly * MAX_MOVES_PER_PLY];
+        this.scores = new int[maxPly * MAX_MOVES_PER_PLY];
+        this.ends = new int[maxPly];
+    }
+
+    public int[] getMoves() {
+        return moves;
+    }
+
+    public int[] getScores() {
+        return scores;
+    }
+
+    public int maxPly() {
+        return ends.length;
+    }
+
+    /**
+     * @return the index of the first move of the ply
+     */
+    public int start(int ply) {
+        return ply * MAX_MOVES_PER_PLY;
+    }
+
+    /**
+     * @return the index behind the last move of the ply
+     */
+    public int end(int ply) {
+        return ends[ply];
+    }
+
+    /**
+     * Sets the index behind the last move of the ply.
+     *
+     * @return the number of moves of the ply
+     */
+    public int setEnd(int ply, int end) {
+        ends[ply] = end;
+        return end - start(ply);
+    }
+}
@@ -0,0 +1,243 @@
+package julius.game.chessengine.board;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree on a {@link BitBoard}, without game state, score or opening book.
+ * <p>
+ * At depth 1 the legal moves are only counted, not played (bulk counting). An optional hash table keeps the count
+ * of every subtree by Zobrist key and depth, and with more than one thread the root moves are split over a
+ * fork-join pool, each on its own copy of the board.
+ */
+@Log4j2
+public class Perft {
+
+    public static final String PERFT_SUITE_PATH = "/perft/perftsuite.epd";
+
+    private static final int MAX_DEPTH = 64;
+    private static final String PROMOTION_NOTATION = "  nbrq";
+
+    private final PerftTable table;
+    private final int threads;
+
+    /**
+     * @param hashSizeInMb size of the perft hash table, 0 for none
+     * @param threads      number of threads the root moves are split over
+     */
+    public Perft(int hashSizeInMb, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Perft needs at least 1 thread, was " + threads);
+        }
+        this.table = hashSizeInMb > 0 ? new PerftTable(hashSizeInMb) : null;
+        this.threads = threads;
+    }
+
+    public long perft(BitBoard bitBoard, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        for (long count : divide(bitBoard, depth).values()) {
+            nodes += count;
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the leaf nodes below every root move, by move in coordinate notation like e2e4 or a7a8q
+     */
+    public Map<String, Long> divide(BitBoard bitBoard, int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Perft depth must be between 1 and " + MAX_DEPTH + ", was " + depth);
+        }
+        int[] rootMoves = new int[MoveList.MAX_SIZE];
+        int moveCount = bitBoard.generateLegalMoves(rootMoves, 0);
+
+        List<RootMoveTask> tasks = new ArrayList<>();
+        for (int i = 0; i < moveCount; i++) {
+            tasks.add(new RootMoveTask(new BitBoard(bitBoard), rootMoves[i], depth - 1));
+        }
+        if (threads > 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new RecursiveTask<Void>() {
+                    @Override
+                    protected Void compute() {
+                        invokeAll(tasks);
+                        return null;
+                    }
+                });
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            tasks.forEach(RootMoveTask::invoke);
+        }
+
+        Map<String, Long> nodesByMove = new LinkedHashMap<>();
+        for (RootMoveTask task : tasks) {
+            nodesByMove.put(toCoordinateNotation(task.move), task.join());
+        }
+        return nodesByMove;
+    }
+
+    /**
+     * Runs the positions of an EPD file in the format of perftsuite.epd, a FEN followed by {@code ;D<depth> <nodes>}
+     * for every depth, up to the given depth.
+     *
+     * @return one result per position and depth
+     */
+    public List<PerftSuiteResult> runSuite(List<String> epdLines, int maxDepth) {
+        List<PerftSuiteResult> results = new ArrayList<>();
+        for (String line : epdLines) {
+            String[] parts = line.split(";");
+            String fen = parts[0].trim();
+            for (int i = 1; i < parts.length; i++) {
+                String[] depthAndNodes = parts[i].trim().split("\\s+");
+                int depth = Integer.parseInt(depthAndNodes[0].substring(1));
+                if (depth > maxDepth) {
+                    break;
+                }
+                long expected = Long.parseLong(depthAndNodes[1]);
+                long startTime = System.nanoTime();
+                long nodes = perft(FEN.translateFENtoBitBoard(fen), depth);
+                PerftSuiteResult result = new PerftSuiteResult(fen, depth, expected, nodes, System.nanoTime() - startTime);
+                if (!result.isPassed()) {
+                    log.warn("Perft mismatch {} depth {}: expected {}, was {}", fen, depth, expected, nodes);
+                }
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the non empty lines of an EPD file on the class path, see {@link #PERFT_SUITE_PATH}
+     */
+    public static List<String> loadSuite(String path) {
+        List<String> lines = new ArrayList<>();
+        try (InputStream is = Perft.class.getResourceAsStream(path)) {
+            if (is == null) {
+                throw new IllegalArgumentException("No perft suite at " + path);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    public static String toCoordinateNotation(int move) {
+        String notation = MoveHelper.convertIndexToString(MoveHelper.deriveFromIndex(move))
+                + MoveHelper.convertIndexToString(MoveHelper.deriveToIndex(move));
+        int promotionPieceTypeBits = MoveHelper.derivePromotionPieceTypeBits(move);
+        return promotionPieceTypeBits != 0 ? notation + PROMOTION_NOTATION.charAt(promotionPieceTypeBits) : notation;
+    }
+
+    private long count(BitBoard bitBoard, MoveStack stack, int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (depth == 1) {
+            return bitBoard.generateLegalMoves(stack, ply);
+        }
+        long hash = bitBoard.getBoardStateHash();
+        if (table != null) {
+            long nodes = table.probe(hash, depth);
+            if (nodes != -1) {
+                return nodes;
+            }
+        }
+
+        int moveCount = bitBoard.generateLegalMoves(stack, ply);
+        int start = stack.start(ply);
+        int[] moves = stack.getMoves();
+        long nodes = 0;
+        for (int i = start; i < start + moveCount; i++) {
+            bitBoard.performMove(moves[i]);
+            nodes += count(bitBoard, stack, depth - 1, ply + 1);
+            bitBoard.undoMove(moves[i]);
+        }
+
+        if (table != null) {
+            table.store(hash, depth, nodes);
+        }
+        return nodes;
+    }
+
+    private class RootMoveTask extends RecursiveTask<Long> {
+
+        private final BitBoard bitBoard;
+        private final int move;
+        private final int depth;
+
+        RootMoveTask(BitBoard bitBoard, int move, int depth) {
+            this.bitBoard = bitBoard;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            bitBoard.performMove(move);
+            return count(bitBoard, new MoveStack(Math.max(depth, 1)), depth, 0);
+        }
+    }
+
+    /**
+     * Subtree counts by Zobrist key and depth, two longs per entry: the data word (nodes and depth) and the key
+     * XOR-ed with it, so a torn write between threads reads as a miss. Always replaces.
+     */
+    private static class PerftTable {
+
+        private static final int DEPTH_BITS = 6;
+        private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+        private final long[] entries;
+        private final int indexMask;
+
+        PerftTable(int sizeInMb) {
+            int entryCount = Integer.highestOneBit((int) Math.min(sizeInMb * 1024L * 1024L / 16, 1 << 30));
+            this.entries = new long[entryCount * 2];
+            this.indexMask = entryCount - 1;
+        }
+
+        /**
+         * @return the nodes below the position to the depth, -1 if not known
+         */
+        long probe(long hash, int depth) {
+            int index = ((int) hash & indexMask) * 2;
+            long data = entries[index + 1];
+            if ((entries[index] ^ data) == hash && (data & DEPTH_MASK) == depth) {
+                return data >>> DEPTH_BITS;
+            }
+            return -1;
+        }
+
+        void store(long hash, int depth, long nodes) {
+            int index = ((int) hash & indexMask) * 2;
+            long data = nodes << DEPTH_BITS | depth;
+            entries[index + 1] = data;
+            entries[index] = hash ^ data;
+        }
+    }
+}
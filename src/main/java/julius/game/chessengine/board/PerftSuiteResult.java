@@ -0,0 +1,25 @@
+package julius.game.chessengine.board;
+
+import lombok.Getter;
+
+@Getter
+public class PerftSuiteResult {
+
+    private final String fen;
+    private final int depth;
+    private final long expectedNodes;
+    private final long nodes;
+    private final long nanos;
+
+    PerftSuiteResult(String fen, int depth, long expectedNodes, long nodes, long nanos) {
+        this.fen = fen;
+        this.depth = depth;
+        this.expectedNodes = expectedNodes;
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+    public boolean isPassed() {
+        return nodes == expectedNodes;
+    }
+}
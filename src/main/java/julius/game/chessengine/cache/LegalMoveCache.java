@@ -0,0 +1,115 @@
+package julius.game.chessengine.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Legal moves by Zobrist key in a fixed number of slots, four slots to a bucket (set associative). A full bucket
+ * evicts the entry stored first, so a lookup never writes to the table.
+ * <p>
+ * Every slot holds an immutable entry with the key and the moves packed into an array of their exact length.
+ * The entry is published with a single reference write and its fields are final, so a reader racing with a writer
+ * sees either the old or the new entry, never a torn one, and neither side needs a lock.
+ */
+public class LegalMoveCache {
+
+    private static final int WAYS = 4;
+
+    private final Entry[] entries;
+    private final int bucketMask;
+
+    // Number of entries stored so far, the insertion stamp of the next entry
+    private final AtomicLong insertions = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity number of entries, rounded down to a power of two and at least one bucket
+     */
+    public LegalMoveCache(int capacity) {
+        int buckets = Integer.highestOneBit(Math.max(capacity / WAYS, 1));
+        this.entries = new Entry[buckets * WAYS];
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * @return the moves stored for the key, or null; the array is shared and must not be changed
+     */
+    public int[] get(long key) {
+        int base = bucketIndex(key);
+        for (int i = base; i < base + WAYS; i++) {
+            Entry entry = entries[i];
+            if (entry != null && entry.key == key) {
+                hits.increment();
+                return entry.moves;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a copy of the first {@code count} moves for the key.
+     */
+    public void put(long key, int[] moves, int count) {
+        int base = bucketIndex(key);
+        int victim = base;
+        long victimStamp = Long.MAX_VALUE;
+        for (int i = base; i < base + WAYS; i++) {
+            Entry entry = entries[i];
+            if (entry == null || entry.key == key) {
+                victim = i;
+                break;
+            }
+            if (entry.stamp < victimStamp) {
+                victimStamp = entry.stamp;
+                victim = i;
+            }
+        }
+        entries[victim] = new Entry(key, Arrays.copyOf(moves, count), insertions.getAndIncrement());
+    }
+
+    public void clear() {
+        Arrays.fill(entries, null);
+        hits.reset();
+        misses.reset();
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the share of lookups that found their moves, in permille, 0 before the first lookup
+     */
+    public int getHitPermille() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (int) (hitCount * 1000 / lookups);
+    }
+
+    private int bucketIndex(long key) {
+        return ((int) key & bucketMask) * WAYS;
+    }
+
+    private static final class Entry {
+        final long key;
+        final int[] moves;
+        final long stamp;
+
+        Entry(long key, int[] moves, long stamp) {
+            this.key = key;
+            this.moves = moves;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package julius.game.chessengine.cache;
+
+/**
+ * Pawn structures by the pawn hash of the board, one structure per slot, always replaced. The structures are
+ * allocated once and recalculated in place on a miss, so a lookup never allocates.
+ * <p>
+ * A table belongs to one search thread and is not thread safe, only the hit and miss counters may be read by
+ * other threads.
+ */
+public class PawnHashTable {
+
+    private final PawnStructure[] entries;
+    private final int indexMask;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity number of entries, rounded down to a power of two
+     */
+    public PawnHashTable(int capacity) {
+        int entryCount = Integer.highestOneBit(Math.max(capacity, 1));
+        this.entries = new PawnStructure[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            // The pawn hash 0 of an empty entry is the hash of no pawns, so it starts as their structure
+            entries[i] = new PawnStructure();
+            entries[i].calculate(0, 0, 0);
+        }
+        this.indexMask = entryCount - 1;
+    }
+
+    /**
+     * @return the structure of the pawns with the pawn hash, valid until the next lookup of the same slot
+     */
+    public PawnStructure get(long pawnHash, long whitePawns, long blackPawns) {
+        PawnStructure entry = entries[(int) pawnHash & indexMask];
+        if (entry.getPawnHash() == pawnHash) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        entry.calculate(pawnHash, whitePawns, blackPawns);
+        return entry;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of lookups that found their structure, in permille, 0 before the first lookup
+     */
+    public int getHitPermille() {
+        long hitCount = hits;
+        long lookups = hitCount + misses;
+        return lookups == 0 ? 0 : (int) (hitCount * 1000 / lookups);
+    }
+}
@@ -0,0 +1,59 @@
+package julius.game.chessengine.cache;
+
+import julius.game.chessengine.helper.BitHelper;
+import julius.game.chessengine.helper.PawnHelper;
+import lombok.Getter;
+
+/**
+ * Everything the evaluation takes from the pawns alone: the pawn structure terms of both sides and the passed pawns
+ * and files they leave, for the rook file bonuses and anything else that looks at the pawns.
+ * Files are 8 bit masks, bit 0 for file A.
+ */
+@Getter
+public class PawnStructure {
+
+    // Pawn bonuses and penalties in millipawns
+    public static final int DOUBLED_PAWN_PENALTY = -20;
+    public static final int ISOLATED_PAWN_PENALTY = -10;
+    public static final int PASSED_PAWN_BONUS = 60;
+
+    private long pawnHash;
+
+    private int whiteDoubledPawnPenalty;
+    private int blackDoubledPawnPenalty;
+    private int whiteIsolatedPawnPenalty;
+    private int blackIsolatedPawnPenalty;
+    private int whitePassedPawnBonus;
+    private int blackPassedPawnBonus;
+
+    private long whitePassedPawns;
+    private long blackPassedPawns;
+
+    // Files without pawns, and files without own but with opponent pawns
+    private int openFiles;
+    private int whiteHalfOpenFiles;
+    private int blackHalfOpenFiles;
+
+    /**
+     * Calculates the structure of the pawns, which have the given pawn hash.
+     */
+    public void calculate(long pawnHash, long whitePawns, long blackPawns) {
+        this.pawnHash = pawnHash;
+
+        whiteDoubledPawnPenalty = PawnHelper.countDoubledPawns(whitePawns) * DOUBLED_PAWN_PENALTY;
+        blackDoubledPawnPenalty = PawnHelper.countDoubledPawns(blackPawns) * DOUBLED_PAWN_PENALTY;
+        whiteIsolatedPawnPenalty = PawnHelper.countIsolatedPawns(whitePawns) * ISOLATED_PAWN_PENALTY;
+        blackIsolatedPawnPenalty = PawnHelper.countIsolatedPawns(blackPawns) * ISOLATED_PAWN_PENALTY;
+
+        whitePassedPawns = PawnHelper.passedPawns(whitePawns, blackPawns, true);
+        blackPassedPawns = PawnHelper.passedPawns(blackPawns, whitePawns, false);
+        whitePassedPawnBonus = Long.bitCount(whitePassedPawns) * PASSED_PAWN_BONUS;
+        blackPassedPawnBonus = Long.bitCount(blackPassedPawns) * PASSED_PAWN_BONUS;
+
+        int whitePawnFiles = BitHelper.files(whitePawns);
+        int blackPawnFiles = BitHelper.files(blackPawns);
+        openFiles = ~(whitePawnFiles | blackPawnFiles) & 0xFF;
+        whiteHalfOpenFiles = ~whitePawnFiles & blackPawnFiles;
+        blackHalfOpenFiles = ~blackPawnFiles & whitePawnFiles;
+    }
+}
@@ -60,6 +60,42 @@ public class ChessController {
         log.debug("setting to: " + timeLimit);
         return ResponseEntity.ok().build();
     }
+
+    @PatchMapping(value = "/autoplay/threads/{threads}")
+    public ResponseEntity<?> autoplaySetThreads(@PathVariable("threads") int threads) {
+        try {
+            ai.setSearchThreads(threads);
+        } catch (IllegalArgumentException e) {
+            log.error("Could not set search threads to {}", threads, e);
+            return ResponseEntity.status(406).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping(value = "/hash")
+    public ResponseEntity<HashTableInfo> getHashTableInfo() {
+        return ResponseEntity.ok(new HashTableInfo(ai.getTranspositionTable(), ai.getCaptureTranspositionTable(),
+                ai.getMainEngine().getLegalMovesCache(), ai.getPawnHashTables()));
+    }
+
+    @PatchMapping(value = "/hash/size/{sizeInMb}")
+    public ResponseEntity<?> resizeHashTable(@PathVariable("sizeInMb") int sizeInMb,
+                                             @RequestParam(value = "offHeap", defaultValue = "false") boolean offHeap) {
+        try {
+            ai.resizeTranspositionTable(sizeInMb, offHeap);
+        } catch (IllegalArgumentException | OutOfMemoryError e) {
+            log.error("Could not resize transposition table to {} MB", sizeInMb, e);
+            return ResponseEntity.status(406).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @PutMapping(value = "/hash/clear")
+    public ResponseEntity<?> clearHashTable() {
+        ai.clearTranspositionTables();
+        return ResponseEntity.ok().build();
+    }
+
     @PatchMapping(value = "/autoplay/{color}")
     public ResponseEntity<?> calculateMoveForColor(@PathVariable("color") String color) {
         if (color != null) {
@@ -183,8 +219,8 @@ public class ChessController {
                     .collect(Collectors.joining(", "));
             boardState.setMove(moves);
 
-            double lastScore = moveAndScores.get(moveAndScores.size() - 1).getScore();
-            boardState.setScore(lastScore);
+            int lastScore = moveAndScores.get(moveAndScores.size() - 1).getScore();
+            boardState.setScore(lastScore / 1000.0); // in pawns
         }
 
         return ResponseEntity.ok(boardState);
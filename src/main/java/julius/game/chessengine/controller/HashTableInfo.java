@@ -0,0 +1,42 @@
+package julius.game.chessengine.controller;
+
+import julius.game.chessengine.ai.TranspositionTable;
+import julius.game.chessengine.cache.LegalMoveCache;
+import julius.game.chessengine.cache.PawnHashTable;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class HashTableInfo {
+    int sizeInMb;
+    boolean offHeap;
+    long memoryUsageInBytes;
+    long captureMemoryUsageInBytes;
+    int usagePermille;
+    long legalMoveCacheHits;
+    long legalMoveCacheMisses;
+    int legalMoveCacheHitPermille;
+    // Summed over the pawn hash tables of all search threads
+    long pawnHashTableHits;
+    long pawnHashTableMisses;
+    int pawnHashTableHitPermille;
+
+    public HashTableInfo(TranspositionTable table, TranspositionTable captureTable, LegalMoveCache legalMoveCache,
+                         List<PawnHashTable> pawnHashTables) {
+        this.sizeInMb = table.getSizeInMb();
+        this.offHeap = table.isOffHeap();
+        this.memoryUsageInBytes = table.getMemoryUsageInBytes();
+        this.captureMemoryUsageInBytes = captureTable.getMemoryUsageInBytes();
+        this.usagePermille = table.getUsagePermille();
+        this.legalMoveCacheHits = legalMoveCache.getHits();
+        this.legalMoveCacheMisses = legalMoveCache.getMisses();
+        this.legalMoveCacheHitPermille = legalMoveCache.getHitPermille();
+        for (PawnHashTable pawnHashTable : pawnHashTables) {
+            this.pawnHashTableHits += pawnHashTable.getHits();
+            this.pawnHashTableMisses += pawnHashTable.getMisses();
+        }
+        long pawnHashTableLookups = pawnHashTableHits + pawnHashTableMisses;
+        this.pawnHashTableHitPermille = pawnHashTableLookups == 0 ? 0 : (int) (pawnHashTableHits * 1000 / pawnHashTableLookups);
+    }
+}
@@ -2,9 +2,10 @@ package julius.game.chessengine.engine;
 
 import julius.game.chessengine.ai.OpeningBook;
 import julius.game.chessengine.board.*;
-import julius.game.chessengine.cache.TimedLRUCache;
+import julius.game.chessengine.cache.LegalMoveCache;
 import julius.game.chessengine.figures.PieceType;
 import julius.game.chessengine.utils.Color;
+import julius.game.chessengine.utils.Score;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
@@ -16,10 +17,11 @@ import java.util.stream.Collectors;
 @Log4j2
 public class Engine {
 
-    private static final int MAX_SIZE = 5_000_000;
-    private static final int MAX_AGE = 10_000;
+    // The search runs on SearchPositions, the cache only sees the positions of the game and the user interface
+    private static final int LEGAL_MOVES_CACHE_CAPACITY = 1 << 16;
 
-    private TimedLRUCache<Long, MoveList> legalMovesCache = new TimedLRUCache<>(MAX_SIZE, MAX_AGE);
+    @Getter
+    private LegalMoveCache legalMovesCache;
 
     @Getter
     private OpeningBook openingBook;
@@ -52,10 +54,8 @@ public class Engine {
 
     public MoveList getAllLegalMoves() {
         if (gameState.isGameOver()) {
-            if (legalMoves == null) {
-                legalMoves = new MoveList();  // Create only if null
-            } else {
-                legalMoves.clear();  // Clear existing list instead of creating a new one
+            if (legalMoves == null || legalMoves.size() > 0) {
+                legalMoves = new MoveList();  // Never clear a list, it may be shared with copies of the engine
             }
         } else if (legalMovesNeedUpdate) {
             generateLegalMoves();
@@ -89,6 +89,14 @@ public class Engine {
         return new Engine(this);
     }
 
+    /**
+     * Copies the position for a search, with the positions of the game for the repetitions.
+     */
+    public synchronized SearchPosition createSearchPosition() {
+        return new SearchPosition(new BitBoard(bitBoard), new Score(gameState.getScore()), gameState.getState(),
+                gameState.getPositionHashes(), gameState.getPositionCount(), getLastMove());
+    }
+
     public void startNewGame() {
         bitBoard = new BitBoard();
         gameState = new GameState(bitBoard);
@@ -96,16 +104,18 @@ public class Engine {
         line = new ArrayList<>();
         redoLine = new ArrayList<>();
         this.openingBook = OpeningBook.getInstance();
-        legalMovesCache = new TimedLRUCache<>(MAX_SIZE, MAX_AGE);
+        legalMovesCache = new LegalMoveCache(LEGAL_MOVES_CACHE_CAPACITY);
     }
 
     private void generateLegalMoves() {
 
         long boardStateHash = getBoardStateHash();
 
-        if (legalMovesCache.containsKey(boardStateHash)) {
-            // Use the cached moves
-            this.legalMoves = legalMovesCache.get(boardStateHash);
+        // The cache is shared with all copies of the engine and needs no lock
+        int[] cachedMoves = legalMovesCache.get(boardStateHash);
+        if (cachedMoves != null) {
+            this.legalMoves = new MoveList(cachedMoves, cachedMoves.length);
+            legalMovesNeedUpdate = false;
             return;
         }
 
@@ -115,25 +125,9 @@ public class Engine {
             return;
         }
 
-        BitBoard simulation = new BitBoard(bitBoard); // Only one instance
-        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
-
-        this.legalMoves = new MoveList();
-        for (int i = 0; i < moves.size(); i++) {
-            int move = moves.getMove(i);
-            simulation.performMove(move);
-            if (!simulation.isInCheck(MoveHelper.isWhitesMove(move))) {
-                this.legalMoves.add(move);
-            }
-            simulation.undoMove(move); // Revert to original state after checking
-        }
+        this.legalMoves = bitBoard.generateLegalMoves();
         legalMovesNeedUpdate = false;
-        legalMovesCache.put(boardStateHash, this.legalMoves);
-
-        int size = legalMovesCache.size();
-        if(size > MAX_SIZE + 100) {
-            throw new RuntimeException(String.format("LegalMovesCache size %s is larger then MAX_SIZE %s", size, MAX_SIZE));
-        }
+        legalMovesCache.put(boardStateHash, legalMoves.get(), legalMoves.size());
     }
 
     // Each of these methods would need to be implemented to handle the specific move generation for each piece type.
@@ -247,10 +241,10 @@ public class Engine {
 
     public void undoLastMove() {
         if (!line.isEmpty()) {
-            gameState.undo(bitBoard.getBoardStateHash());
+            gameState.undo();
             Integer undoMove = line.getLast();
             this.bitBoard.undoMove(undoMove);
-            gameState.updateScore(bitBoard, undoMove);
+            gameState.undoScore(bitBoard, undoMove);
             generateLegalMoves();
             redoLine.add(undoMove);
             line.removeLast();
@@ -280,17 +274,6 @@ public class Engine {
         return FEN.translateBoardToFEN(bitBoard);
     }
 
-    public Long getBoardStateHashAfterMove(int move) {
-        // Step 1: Create a deep copy of the current board state
-        BitBoard boardCopy = new BitBoard(this.bitBoard);
-
-        // Step 2: Simulate the move on the copied board
-        boardCopy.performMove(move); // Assuming 'false' means no need to update the score
-
-        // Step 3: Return the computed hash
-        return boardCopy.getBoardStateHash();
-    }
-
     public boolean isEndgame() {
         return bitBoard.isEndgame();
     }
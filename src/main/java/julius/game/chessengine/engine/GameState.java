@@ -1,33 +1,41 @@
 package julius.game.chessengine.engine;
 
 import julius.game.chessengine.board.BitBoard;
-import julius.game.chessengine.board.MoveHelper;
 import julius.game.chessengine.board.MoveList;
 import julius.game.chessengine.utils.Score;
 import lombok.Data;
 import lombok.extern.log4j.Log4j2;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 
 @Data
 @Log4j2
 public class GameState {
 
-    private ConcurrentHashMap<Long, Integer> repetitionCounter;
+    // A game without a capture or pawn move for 50 moves of each side is drawn
+    public static final int FIFTY_MOVE_RULE_PLIES = 100;
+
+    private static final int INITIAL_HISTORY_CAPACITY = 256;
+
+    // Hashes of all positions of the game in the order they were reached, the position of the board last
+    private long[] positionHashes;
+    private int positionCount;
 
     private GameStateEnum state;
 
     private Score score;
 
     public GameState(BitBoard bitBoard) {
-        repetitionCounter = new ConcurrentHashMap<>();
+        positionHashes = new long[INITIAL_HISTORY_CAPACITY];
+        positionHashes[positionCount++] = bitBoard.getBoardStateHash();
         state = GameStateEnum.PLAY;
         score = new Score();
         initializeScore(bitBoard);
     }
 
     public GameState(GameState other) {
-        this.repetitionCounter = new ConcurrentHashMap<>(other.repetitionCounter); // Deep copy of the map
+        this.positionHashes = Arrays.copyOf(other.positionHashes, other.positionHashes.length);
+        this.positionCount = other.positionCount;
         this.state = other.state; // Enum, so a direct copy is fine
         this.score = new Score(other.score);
     }
@@ -38,132 +46,42 @@ public class GameState {
     }
 
     public void update(BitBoard bitBoard, MoveList legalMoves, int move, boolean isOpeningMove) {
+        addPosition(bitBoard.getBoardStateHash());
         updateState(bitBoard, legalMoves, isOpeningMove);
         updateScore(bitBoard, move);
     }
 
+    /**
+     * Sets the state of the last position of the history, which has to be the position of the board. Mate goes before
+     * the draws and a draw goes before check, a repetition while in check is still a draw.
+     */
     public void updateState(BitBoard bitBoard, MoveList legalMoves, boolean isOpeningMove) {
-        if (whiteInCheck(bitBoard)) {
+        if (whiteInCheck(bitBoard) && legalMoves.size() == 0) {
+            state = GameStateEnum.BLACK_WON;
+        } else if (blackInCheck(bitBoard) && legalMoves.size() == 0) {
+            state = GameStateEnum.WHITE_WON;
+        } else if (isDraw(bitBoard, legalMoves)) {
+            state = GameStateEnum.DRAW;
+        } else if (whiteInCheck(bitBoard)) {
             state = GameStateEnum.WHITE_IN_CHECK;
-            if (whiteLost(legalMoves)) {
-                state = GameStateEnum.BLACK_WON;
-            }
         } else if (blackInCheck(bitBoard)) {
             state = GameStateEnum.BLACK_IN_CHECK;
-            if (blackLost(legalMoves)) {
-                state = GameStateEnum.WHITE_WON;
-            }
-        } else if (isDraw(bitBoard, legalMoves)) {
-            state = GameStateEnum.DRAW;
+        } else if (isOpeningMove) {
+            state = GameStateEnum.PLAY_OPENING;
         } else {
-            if(isOpeningMove) {
-                state = GameStateEnum.PLAY_OPENING;
-            }
-            else {
-                state = GameStateEnum.PLAY;
-            }
-            incrementHashCount(bitBoard.getBoardStateHash());
+            state = GameStateEnum.PLAY;
         }
     }
 
     public void updateScore(BitBoard bitBoard, int move) {
-        //reset cached score
-        score.resetCachedScoreDifference();
-
-        boolean isWhite = MoveHelper.isWhitesMove(move);
-        int pieceTypeBits = MoveHelper.derivePieceTypeBits(move);
-        int capturedPieceTypeBits = MoveHelper.deriveCapturedPieceTypeBits(move);
-        int promotionPieceTypeBits = MoveHelper.derivePromotionPieceTypeBits(move);
-
-        updatePieceValues(isWhite, pieceTypeBits, bitBoard, state);
-
-        if (capturedPieceTypeBits != 0) {
-            updateCapturedPieceValues(isWhite, capturedPieceTypeBits, bitBoard);
-        }
-        if (promotionPieceTypeBits != 0) {
-            updatePromotionPieceValues(isWhite, promotionPieceTypeBits, bitBoard);
-        }
-
-        log.debug("Piecetype: {}, CapturedType: {}, ScoreWhite: {}, ScoreBlack: {}",
-                pieceTypeBits, capturedPieceTypeBits, score.calculateTotalWhiteScore(), score.calculateTotalBlackScore());
-    }
-
-    private void updatePieceValues(boolean isWhite, int pieceTypeBits, BitBoard bitBoard, GameStateEnum state) {
-        if (isWhite) {
-/*            //TODO check if this could be done more efficient
-            int agilityWhite = bitBoard.generateAllPossibleMoves(true).size();*/
-
-            updateValuesForWhite(pieceTypeBits, bitBoard);
-/*            score.updateAgilityBonusWhite(agilityWhite);*/
-            score.updateStateValuesWhite(state);
-
-        } else {
-/*            //TODO check if this could be done more efficient
-            int agilityBlack = bitBoard.generateAllPossibleMoves(false).size();*/
-
-            updateValuesForBlack(pieceTypeBits, bitBoard);
-/*            score.updateAgilityBonusBlack(agilityBlack);*/
-            score.updateStateValuesBlack(state);
-        }
-
-
-    }
-
-    private void updateValuesForWhite(int pieceTypeBits, BitBoard bitBoard) {
-        boolean isEndgame = bitBoard.isEndgame();
-        switch (pieceTypeBits) {
-            case 1: score.updateWhitePawnValues(bitBoard); break;
-            case 2: score.updateWhiteKnightValues(bitBoard.getWhiteKnights(), bitBoard.getWhiteBishops(), bitBoard.getWhiteRooks()); break;
-            case 3: score.updateWhiteBishopValues(bitBoard.getWhiteBishops(), bitBoard.getWhiteKnights(), bitBoard.getWhiteRooks()); break;
-            case 4: score.updateWhiteRookValues(bitBoard); break;
-            case 5: score.updateWhiteQueenValues(bitBoard.getWhiteQueens()); break;
-            case 6: score.updateKingValuesWhite(bitBoard.getWhiteKing(), bitBoard.isWhiteKingHasCastled(), bitBoard.isWhiteKingMoved(), bitBoard.isWhiteRookA1Moved(), bitBoard.isWhiteRookH1Moved(), isEndgame); break;
-            default: break; // Optionally handle default case
-        }
+        score.update(bitBoard, move, state);
     }
 
-    private void updateValuesForBlack(int pieceTypeBits, BitBoard bitBoard) {
-        boolean isEndgame = bitBoard.isEndgame();
-        switch (pieceTypeBits) {
-            case 1: score.updateBlackPawnValues(bitBoard); break;
-            case 2: score.updateBlackKnightValues(bitBoard.getBlackKnights(), bitBoard.getBlackBishops(), bitBoard.getBlackRooks()); break;
-            case 3: score.updateBlackBishopValues(bitBoard.getBlackBishops(), bitBoard.getBlackKnights(), bitBoard.getBlackRooks()); break;
-            case 4: score.updateBlackRookValues(bitBoard); break;
-            case 5: score.updateBlackQueenValues(bitBoard.getBlackQueens()); break;
-            case 6: score.updateKingValuesBlack(bitBoard.getBlackKing(), bitBoard.isBlackKingHasCastled(), bitBoard.isBlackKingMoved(), bitBoard.isBlackRookA8Moved(), bitBoard.isBlackRookH8Moved(), isEndgame); break;
-            default: break; // Optionally handle default case
-        }
-    }
-
-    private void updateCapturedPieceValues(boolean isWhite, int capturedPieceTypeBits, BitBoard bitBoard) {
-
-
-        if (isWhite) {
-            //TODO check if this could be done more efficient
-/*
-            int agilityBlack = bitBoard.generateAllPossibleMoves(false).size();
-            score.updateAgilityBonusBlack(agilityBlack);
-*/
-
-            updateValuesForBlack(capturedPieceTypeBits, bitBoard); // Update black pieces if white is capturing
-        } else {
-            //TODO check if this could be done more efficient
-/*
-            int agilityWhite = bitBoard.generateAllPossibleMoves(true).size();
-            score.updateAgilityBonusBlack(agilityWhite);
-*/
-
-            updateValuesForWhite(capturedPieceTypeBits, bitBoard); // Update white pieces if black is capturing
-        }
-    }
-
-    private void updatePromotionPieceValues(boolean isWhite, int promotionPieceTypeBits, BitBoard bitBoard) {
-        if (isWhite) {
-            updateValuesForWhite(promotionPieceTypeBits, bitBoard); // Update white pieces if black is capturing
-
-        } else {
-            updateValuesForBlack(promotionPieceTypeBits, bitBoard); // Update black pieces if white is capturing
-        }
+    /**
+     * Takes the move out of the score, after it was taken back on the board.
+     */
+    public void undoScore(BitBoard bitBoard, int move) {
+        score.undo(bitBoard, move);
     }
 
 
@@ -188,61 +106,51 @@ public class GameState {
         return state.equals(GameStateEnum.DRAW);
     }
 
+    // After a legal move only the side to move can be in check, the board caches that for the move generation
     private boolean whiteInCheck(BitBoard bitBoard) {
-        return bitBoard.isInCheck(true);
+        return bitBoard.whitesTurn && bitBoard.isInCheck();
     }
 
     private boolean blackInCheck(BitBoard bitBoard) {
-        return bitBoard.isInCheck(false);
-    }
-
-    private boolean whiteLost(MoveList legalMoves) {
-        return state.equals(GameStateEnum.WHITE_IN_CHECK) && legalMoves.size() == 0;
+        return !bitBoard.whitesTurn && bitBoard.isInCheck();
     }
 
-    private boolean blackLost(MoveList legalMoves) {
-        return state.equals(GameStateEnum.BLACK_IN_CHECK) && legalMoves.size() == 0;
+    // Stalemate, if the side to move is not mated
+    private boolean isDraw(BitBoard bitBoard, MoveList legalMoves) {
+        return legalMoves.size() == 0
+                || bitBoard.hasInsufficientMaterial()
+                || bitBoard.getHalfmoveClock() >= FIFTY_MOVE_RULE_PLIES
+                || isThreeFoldRepetition(bitBoard.getHalfmoveClock());
     }
 
-
-    private boolean isDraw(BitBoard bitBoard, MoveList legalMoves) {
-        boolean insufficientMaterial = bitBoard.hasInsufficientMaterial();
-        boolean isThreeFoldRepetition = isThreeFoldRepetition(bitBoard.getBoardStateHash());
-        return legalMoves.size() == 0 || insufficientMaterial || isThreeFoldRepetition;
+    private void addPosition(long hash) {
+        if (positionCount == positionHashes.length) {
+            positionHashes = Arrays.copyOf(positionHashes, positionCount * 2);
+        }
+        positionHashes[positionCount++] = hash;
     }
 
     /**
-     * Threefold Repetition Logic
+     * Only positions since the last capture or pawn move can repeat the last one, and only every second of them has
+     * the same side to move.
      */
-    private void incrementHashCount(long hash) {
-        repetitionCounter.put(hash, repetitionCounter.getOrDefault(hash, 0) + 1);
-    }
-
-    private void decrementHashCount(long hash) {
-        // Check if the hash exists in the map
-        if (repetitionCounter.containsKey(hash)) {
-            int count = repetitionCounter.get(hash);
-
-            // Decrement the count
-            if (count > 1) {
-                repetitionCounter.put(hash, count - 1);
-            } else {
-                // If the count reaches zero, remove the hash from the map
-                repetitionCounter.remove(hash);
+    private boolean isThreeFoldRepetition(int halfmoveClock) {
+        long hash = positionHashes[positionCount - 1];
+        int first = Math.max(positionCount - 1 - halfmoveClock, 0);
+        int repetitions = 1;
+        for (int i = positionCount - 3; i >= first; i -= 2) {
+            if (positionHashes[i] == hash && ++repetitions == 3) {
+                return true;
             }
         }
+        return false;
     }
 
-    private boolean isThreeFoldRepetition(long hash) {
-        int repCount = repetitionCounter.getOrDefault(hash, 0);
-        if (repCount > 3) {
-            throw new IllegalStateException(String.format("Repetition count can't be higher then 3, was %s", repCount));
-        }
-        return repCount == 3;
-    }
-
-    public void undo(long hash) {
-        decrementHashCount(hash);
+    /**
+     * Takes the last position out of the history, before the move that reached it is taken back.
+     */
+    public void undo() {
+        positionCount--;
         state = GameStateEnum.PLAY;
     }
 
@@ -253,7 +161,7 @@ public class GameState {
                 "\n  White Score: " + score.calculateTotalWhiteScore() +
                 "\n  Black Score: " + score.calculateTotalBlackScore() +
                 "\n  Score Difference: " + score.getScoreDifference() +
-                "\n  Repetition Count: " + repetitionCounter +
+                "\n  Positions: " + positionCount +
                 "\n}";
         return sb;
     }
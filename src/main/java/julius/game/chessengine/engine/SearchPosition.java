@@ -0,0 +1,263 @@
+package julius.game.chessengine.engine;
+
+import julius.game.chessengine.board.BitBoard;
+import julius.game.chessengine.board.MoveHelper;
+import julius.game.chessengine.board.MoveList;
+import julius.game.chessengine.board.MoveStack;
+import julius.game.chessengine.cache.PawnHashTable;
+import julius.game.chessengine.utils.Score;
+
+import java.util.Arrays;
+
+/**
+ * The position a search thread moves through: the board with its incremental hash, the evaluation terms, the game
+ * state and the hashes of the positions before it. Unlike a copy of the {@link Engine} it has no move lists,
+ * no legal move cache and no game bookkeeping, so every search thread can own one.
+ * Game states follow the rules of {@link GameState}, except that a move generates no legal moves: mate and stalemate
+ * are left to the search, which finds them as a position without a legal move to search. A position the search
+ * already reached on its own path is a draw when it repeats once, only a position of the game has to be there
+ * three times.
+ */
+public class SearchPosition {
+
+    private static final int INITIAL_CAPACITY = 128;
+
+    private final BitBoard bitBoard;
+    private final Score score;
+    private GameStateEnum state;
+
+    // Moves performed on the position, -1 for a null move, and the state of the position each of them left
+    private int[] moves;
+    private GameStateEnum[] states;
+    private int moveCount;
+    private final int lastGameMove;
+
+    // Hashes of all positions, the ones of the game first and the current position last
+    private long[] positionHashes;
+    private int positionCount;
+    // Index of the first position the search reached, the root is the last position of the game
+    private final int firstSearchPosition;
+    // Index of the position after the last null move on the path, a move can not repeat a position before it
+    private int nullMovePosition;
+
+    // Legal moves of the current position, for hasLegalMove and findLegalMove
+    private final int[] legalMoves = new int[MoveList.MAX_SIZE];
+
+    SearchPosition(BitBoard bitBoard, Score score, GameStateEnum state, long[] gamePositionHashes, int gamePositionCount,
+                   int lastGameMove) {
+        this.bitBoard = bitBoard;
+        this.score = score;
+        this.state = state;
+        this.lastGameMove = lastGameMove;
+        this.moves = new int[INITIAL_CAPACITY];
+        this.states = new GameStateEnum[INITIAL_CAPACITY];
+        this.positionHashes = Arrays.copyOf(gamePositionHashes, gamePositionCount + INITIAL_CAPACITY);
+        this.positionCount = gamePositionCount;
+        this.firstSearchPosition = gamePositionCount;
+    }
+
+    public SearchPosition(SearchPosition other) {
+        this.bitBoard = new BitBoard(other.bitBoard);
+        this.score = new Score(other.score);
+        this.state = other.state;
+        this.lastGameMove = other.lastGameMove;
+        this.moves = Arrays.copyOf(other.moves, other.moves.length);
+        this.states = Arrays.copyOf(other.states, other.states.length);
+        this.moveCount = other.moveCount;
+        this.positionHashes = Arrays.copyOf(other.positionHashes, other.positionHashes.length);
+        this.positionCount = other.positionCount;
+        this.firstSearchPosition = other.firstSearchPosition;
+        this.nullMovePosition = other.nullMovePosition;
+    }
+
+    /**
+     * Scores pawn structures through the table from now on, which must belong to the thread searching this position.
+     */
+    public void usePawnHashTable(PawnHashTable pawnHashTable) {
+        score.usePawnHashTable(pawnHashTable);
+    }
+
+    public void performMove(int move) {
+        bitBoard.performMove(move);
+        push(move);
+        updateState();
+        score.update(bitBoard, move, state);
+    }
+
+    public void undoLastMove() {
+        int move = pop();
+        bitBoard.undoMove(move);
+        score.undo(bitBoard, move);
+    }
+
+    /**
+     * Passes the turn without moving a piece, for null move pruning. The side to move must not be in check.
+     */
+    public void performNullMove() {
+        bitBoard.performNullMove();
+        push(-1);
+        nullMovePosition = positionCount - 1;
+        updateState();
+    }
+
+    public void undoNullMove() {
+        pop();
+        bitBoard.undoNullMove();
+        nullMovePosition = 0;
+        for (int i = moveCount - 1; i >= 0; i--) {
+            if (moves[i] == -1) {
+                nullMovePosition = firstSearchPosition + i;
+                break;
+            }
+        }
+    }
+
+    private void push(int move) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moveCount * 2);
+            states = Arrays.copyOf(states, moveCount * 2);
+        }
+        states[moveCount] = state;
+        moves[moveCount++] = move;
+        if (positionCount == positionHashes.length) {
+            positionHashes = Arrays.copyOf(positionHashes, positionCount * 2);
+        }
+        positionHashes[positionCount++] = bitBoard.getBoardStateHash();
+    }
+
+    // The search enters a position again after undoing a move, so its state comes back exactly
+    private int pop() {
+        moveCount--;
+        positionCount--;
+        state = states[moveCount];
+        return moves[moveCount];
+    }
+
+    /**
+     * Sets the state of the position reached by a move, see {@link GameState#updateState}, without looking for
+     * mate or stalemate.
+     */
+    private void updateState() {
+        boolean inCheck = bitBoard.isInCheck();
+        if (bitBoard.hasInsufficientMaterial() || isRepetition() || isFiftyMoveRuleDraw(inCheck)) {
+            state = GameStateEnum.DRAW;
+        } else if (inCheck) {
+            state = bitBoard.whitesTurn ? GameStateEnum.WHITE_IN_CHECK : GameStateEnum.BLACK_IN_CHECK;
+        } else {
+            state = GameStateEnum.PLAY;
+        }
+    }
+
+    /**
+     * Scans back to the last capture, pawn move or null move, every second position has the same side to move.
+     * A repetition of a position of the search is a draw, a position of the game has to be there twice before.
+     */
+    private boolean isRepetition() {
+        long hash = positionHashes[positionCount - 1];
+        int first = Math.max(positionCount - 1 - bitBoard.getHalfmoveClock(), nullMovePosition);
+        boolean repeatsGamePosition = false;
+        for (int i = positionCount - 3; i >= first; i -= 2) {
+            if (positionHashes[i] == hash) {
+                if (i >= firstSearchPosition || repeatsGamePosition) {
+                    return true;
+                }
+                repeatsGamePosition = true;
+            }
+        }
+        return false;
+    }
+
+    // Mate goes before the fifty move rule
+    private boolean isFiftyMoveRuleDraw(boolean inCheck) {
+        return bitBoard.getHalfmoveClock() >= GameState.FIFTY_MOVE_RULE_PLIES && (!inCheck || hasLegalMove());
+    }
+
+    /**
+     * @return the last move performed on the position, the last move of the game before the first one
+     */
+    public int getLastMove() {
+        return moveCount > 0 ? moves[moveCount - 1] : lastGameMove;
+    }
+
+    public long getBoardStateHash() {
+        return bitBoard.getBoardStateHash();
+    }
+
+    public boolean whitesTurn() {
+        return bitBoard.whitesTurn;
+    }
+
+    /**
+     * @return true if the side to move is in check, from the board rather than the state left by the last move
+     */
+    public boolean isInCheck() {
+        return bitBoard.isInCheck();
+    }
+
+    public boolean isInStateCheck() {
+        return state == GameStateEnum.WHITE_IN_CHECK || state == GameStateEnum.BLACK_IN_CHECK;
+    }
+
+    /**
+     * @return true for a draw by insufficient material, repetition or the fifty move rule, stalemate is not detected
+     */
+    public boolean isInStateDraw() {
+        return state == GameStateEnum.DRAW;
+    }
+
+    /**
+     * @return white's score minus black's score in millipawns
+     */
+    public int getScoreDifference() {
+        return score.getScoreDifference();
+    }
+
+    public boolean hasNonPawnMaterial() {
+        return bitBoard.hasNonPawnMaterial(bitBoard.whitesTurn);
+    }
+
+    /**
+     * @see BitBoard#generateLegalMoves(MoveStack, int)
+     */
+    public int generateLegalMoves(MoveStack stack, int ply) {
+        return bitBoard.generateLegalMoves(stack, ply);
+    }
+
+    /**
+     * @see BitBoard#generateCaptures(MoveStack, int)
+     */
+    public int generateCaptures(MoveStack stack, int ply) {
+        return bitBoard.generateCaptures(stack, ply);
+    }
+
+    public boolean isLegalMove(int move) {
+        return bitBoard.isLegal(move);
+    }
+
+    /**
+     * @return false if the side to move is mated or stalemated
+     */
+    public boolean hasLegalMove() {
+        return bitBoard.generateLegalMoves(legalMoves, 0) != 0;
+    }
+
+    /**
+     * @return the legal move with the compact form, see {@link MoveHelper#toCompactMove(int)}, or -1 if there is none
+     */
+    public int findLegalMove(int compactMove) {
+        int moveCount = bitBoard.generateLegalMoves(legalMoves, 0);
+        for (int i = 0; i < moveCount; i++) {
+            if (MoveHelper.toCompactMove(legalMoves[i]) == compactMove) {
+                return legalMoves[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @see BitBoard#staticExchangeEvaluation(int)
+     */
+    public int staticExchangeEvaluation(int move) {
+        return bitBoard.staticExchangeEvaluation(move);
+    }
+}
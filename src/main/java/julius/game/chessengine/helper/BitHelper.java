@@ -35,4 +35,14 @@ public class BitHelper {
         return (rank - 1) * 8 + (file - 'a');
     }
 
+    /**
+     * @return the files with at least one bit of the bitboard, bit 0 for file A
+     */
+    public static int files(long bitboard) {
+        bitboard |= bitboard >>> 32;
+        bitboard |= bitboard >>> 16;
+        bitboard |= bitboard >>> 8;
+        return (int) bitboard & 0xFF;
+    }
+
 }
@@ -2,6 +2,7 @@ package julius.game.chessengine.helper;
 
 import lombok.extern.log4j.Log4j2;
 
+import static julius.game.chessengine.helper.BitHelper.FileMasks;
 import static julius.game.chessengine.helper.BitHelper.bitIndex;
 import static julius.game.chessengine.helper.BitHelper.fileBitboard;
 
@@ -65,6 +66,27 @@ public class PawnHelper {
         return isolatedPawns;
     }
 
+    // Method to find passed pawns, which have no opponent pawn ahead of them on their own or an adjacent file;
+    // of doubled pawns only the front one can be passed
+    public static long passedPawns(long pawnsBitboard, long opponentPawnsBitboard, boolean isWhite) {
+        long blockedSquares = isWhite ? southFill(opponentPawnsBitboard >>> 8) : northFill(opponentPawnsBitboard << 8);
+        blockedSquares |= (blockedSquares << 1 & ~FileMasks[0]) | (blockedSquares >>> 1 & ~FileMasks[7]);
+        blockedSquares |= isWhite ? southFill(pawnsBitboard >>> 8) : northFill(pawnsBitboard << 8);
+        return pawnsBitboard & ~blockedSquares;
+    }
+
+    private static long northFill(long bitboard) {
+        bitboard |= bitboard << 8;
+        bitboard |= bitboard << 16;
+        return bitboard | bitboard << 32;
+    }
+
+    private static long southFill(long bitboard) {
+        bitboard |= bitboard >>> 8;
+        bitboard |= bitboard >>> 16;
+        return bitboard | bitboard >>> 32;
+    }
+
     // Helper method to get a bitboard representing a file
 
 
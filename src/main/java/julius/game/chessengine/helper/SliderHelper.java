@@ -0,0 +1,83 @@
+package julius.game.chessengine.helper;
+
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Bishop and rook attacks of all squares in one contiguous table, "fancy" magic bitboards: every square owns a
+ * block of the table, indexed by the magic product of the relevant occupancy. The masks and magics are the ones of
+ * {@link BishopHelper} and {@link RookHelper}, the entries 0-63 of the parallel arrays belong to the bishop squares,
+ * 64-127 to the rook squares.
+ */
+public class SliderHelper {
+
+    private static final int ROOK = 64;
+
+    private static final long[] MASKS = new long[128];
+    private static final long[] MAGICS = new long[128];
+    private static final int[] SHIFTS = new int[128];
+    private static final int[] OFFSETS = new int[128];
+    private static final long[] ATTACKS;
+
+    static {
+        BishopHelper bishopHelper = BishopHelper.getInstance();
+        RookHelper rookHelper = RookHelper.getInstance();
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            size = initializeSquare(square, bishopHelper.bishopMasks[square], bishopHelper.bishopMagics[square], size);
+        }
+        for (int square = 0; square < 64; square++) {
+            size = initializeSquare(ROOK + square, rookHelper.rookMasks[square], rookHelper.rookMagics[square], size);
+        }
+
+        ATTACKS = new long[size];
+        for (int entry = 0; entry < 64; entry++) {
+            int square = entry;
+            fillSquare(square, occupancy -> bishopHelper.calculateBishopMoves(square, occupancy));
+            fillSquare(ROOK + square, occupancy -> rookHelper.calculateRookMoves(square, occupancy));
+        }
+    }
+
+    private SliderHelper() {
+    }
+
+    private static int initializeSquare(int entry, long mask, long magic, int offset) {
+        MASKS[entry] = mask;
+        MAGICS[entry] = magic;
+        SHIFTS[entry] = 64 - Long.bitCount(mask);
+        OFFSETS[entry] = offset;
+        return offset + (1 << Long.bitCount(mask));
+    }
+
+    private static void fillSquare(int entry, LongUnaryOperator moves) {
+        long mask = MASKS[entry];
+        // Walks through all subsets of the mask
+        long occupancy = 0L;
+        do {
+            ATTACKS[index(entry, occupancy)] = moves.applyAsLong(occupancy);
+            occupancy = (occupancy - mask) & mask;
+        } while (occupancy != 0);
+    }
+
+    private static int index(int entry, long occupied) {
+        return OFFSETS[entry] + (int) (((occupied & MASKS[entry]) * MAGICS[entry]) >>> SHIFTS[entry]);
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return ATTACKS[index(square, occupied)];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ATTACKS[index(ROOK + square, occupied)];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return ATTACKS[index(square, occupied)] | ATTACKS[index(ROOK + square, occupied)];
+    }
+
+    /**
+     * @return the number of entries of the attack table
+     */
+    public static int tableSize() {
+        return ATTACKS.length;
+    }
+}
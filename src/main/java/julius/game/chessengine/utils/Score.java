@@ -1,10 +1,19 @@
 package julius.game.chessengine.utils;
 
 import julius.game.chessengine.board.BitBoard;
+import julius.game.chessengine.board.MoveHelper;
+import julius.game.chessengine.cache.PawnHashTable;
+import julius.game.chessengine.cache.PawnStructure;
 import julius.game.chessengine.engine.GameStateEnum;
+import julius.game.chessengine.helper.BitHelper;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 
+import java.util.Arrays;
+
 import static julius.game.chessengine.helper.BishopHelper.BISHOP_POSITIONAL_VALUES;
 import static julius.game.chessengine.helper.KingHelper.*;
 import static julius.game.chessengine.helper.KnightHelper.KNIGHT_POSITIONAL_VALUES;
@@ -20,9 +29,15 @@ public class Score {
     public static final int CHECK = 1000;
     public static final int DRAW = 0;
 
-    public static final int KILLER_MOVE_SCORE = 10000;
+    public static final int KILLER_MOVE_SCORE = 10000000; // move ordering, above any evaluation but below mate
+
+    // Search scores are millipawns like the evaluation, a mate in n plies scores MATE - n
+    public static final int MATE = CHECKMATE * 1000;
+    public static final int MAX_MATE_PLY = 1000;
+    public static final int MATE_BOUND = MATE - MAX_MATE_PLY; // anything beyond is a mate score
 
-    private Double cachedScoreDifference = null;
+    private int cachedScoreDifference;
+    private boolean scoreDifferenceCached = false;
 
     private int whiteScore;
     private int blackScore;
@@ -50,6 +65,8 @@ public class Score {
     private int blackDoubledPawnPenalty = 0;
     private int whiteIsolatedPawnPenalty = 0;
     private int blackIsolatedPawnPenalty = 0;
+    private int whitePassedPawnBonus = 0;
+    private int blackPassedPawnBonus = 0;
     private int whiteRooksHalfOpenFileBonus = 0;
     private int blackRooksHalfOpenFileBonus = 0;
     private int whiteRooksOpenFileBonus = 0;
@@ -76,6 +93,14 @@ public class Score {
     private int whiteStateBonus = 0;
     private int blackStateBonus = 0;
 
+    // State bonuses of both sides before every move that is not taken back yet, restored by undo
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int[] stateBonusHistory = new int[2 * INITIAL_STATE_BONUS_HISTORY];
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int stateBonusHistorySize = 0;
+
     // Constants for piece values
     public static final int PAWN_VALUE = 1000;   // Pawns are worth 1 point, scaled by 100
     public static final int KNIGHT_VALUE = 3000; // Knights are worth 3 points
@@ -83,11 +108,6 @@ public class Score {
     public static final int ROOK_VALUE = 5000;   // Rooks are worth 5 points
     public static final int QUEEN_VALUE = 9000;  // Queens are worth 9 points
 
-    // Pawn bonuses and penalties
-    private static final int DOUBLED_PAWN_PENALTY = -20; // Example penalty value for doubled pawns
-    private static final int ISOLATED_PAWN_PENALTY = -10; // Penalty for isolated pawns
-    private static final int PASSED_PAWN_BONUS = 60;     // Bonus for passed pawns
-
     // Other bonuses and penalties
     private static final int NOT_CASTLED_AND_ROOK_MOVE_PENALTY = -50;
     private static final int START_POSITION_PENALTY = -50; // Define the penalty value for starting position
@@ -104,6 +124,21 @@ public class Score {
     private static final long INITIAL_WHITE_ROOK_POSITION = 0x0000000000000081L; // Rooks on a1 and h1
     private static final long INITIAL_BLACK_ROOK_POSITION = 0x8100000000000000L; // Rooks on a8 and h8
 
+    // Pawn structures of the search thread, null to calculate them every time
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private PawnHashTable pawnHashTable;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final PawnStructure calculatedPawnStructure = new PawnStructure();
+
+    private static final int INITIAL_STATE_BONUS_HISTORY = 128;
+
+    // Piece type bits of a move
+    private static final int PAWN = 1;
+    private static final int ROOK = 4;
+    private static final int KING = 6;
+
 
     public Score() {
         this.whiteScore = 0;
@@ -134,6 +169,8 @@ public class Score {
         this.blackDoubledPawnPenalty = other.blackDoubledPawnPenalty;
         this.whiteIsolatedPawnPenalty = other.whiteIsolatedPawnPenalty;
         this.blackIsolatedPawnPenalty = other.blackIsolatedPawnPenalty;
+        this.whitePassedPawnBonus = other.whitePassedPawnBonus;
+        this.blackPassedPawnBonus = other.blackPassedPawnBonus;
         this.whiteRooksHalfOpenFileBonus = other.whiteRooksHalfOpenFileBonus;
         this.blackRooksHalfOpenFileBonus = other.blackRooksHalfOpenFileBonus;
         this.whiteRooksOpenFileBonus = other.whiteRooksOpenFileBonus;
@@ -156,8 +193,19 @@ public class Score {
 
         this.whiteStateBonus = other.whiteStateBonus;
         this.blackStateBonus = other.blackStateBonus;
+        this.stateBonusHistory = Arrays.copyOf(other.stateBonusHistory, other.stateBonusHistory.length);
+        this.stateBonusHistorySize = other.stateBonusHistorySize;
 
         this.cachedScoreDifference = other.cachedScoreDifference;
+        this.scoreDifferenceCached = other.scoreDifferenceCached;
+        // The pawn hash table is not shared, a copy may go to another thread
+    }
+
+    /**
+     * Looks up pawn structures in the table from now on, which must belong to the thread using this score.
+     */
+    public void usePawnHashTable(PawnHashTable pawnHashTable) {
+        this.pawnHashTable = pawnHashTable;
     }
 
 
@@ -170,7 +218,6 @@ public class Score {
 
         long whitePawns = bitBoard.getWhitePawns();
         long blackPawns = bitBoard.getBlackPawns();
-        long allPawns = whitePawns | blackPawns;
         long whiteKnights = bitBoard.getWhiteKnights();
         long blackKnights = bitBoard.getBlackKnights();
         long whiteBishops = bitBoard.getWhiteBishops();
@@ -188,15 +235,9 @@ public class Score {
         initializeRookScore(whiteRooks, blackRooks);
         initializeQueenScore(whiteQueens, blackQueens);
 
-        updateDoubledPawnPenaltyWhite(whitePawns);
-        updateDoubledPawnPenaltyBlack(blackPawns);
-        updateIsolatedPawnPenaltyWhite(whitePawns);
-        updateIsolatedPawnPenaltyBlack(blackPawns);
-
-        updateRookHalfOpenFileBonusWhite(whiteRooks, whitePawns, blackPawns);
-        updateRookHalfOpenFileBonusBlack(blackRooks, blackPawns, whitePawns);
-        updateRookOpenFileBonusWhite(whiteRooks, allPawns);
-        updateRookOpenFileBonusBlack(blackRooks, allPawns);
+        PawnStructure pawnStructure = pawnStructure(bitBoard);
+        updatePawnStructureValues(pawnStructure);
+        updateRookFileBonuses(whiteRooks, blackRooks, pawnStructure);
 
         // Apply positional values to the pawns
         updatePawnsPositionBonusWhite(whitePawns);
@@ -226,9 +267,176 @@ public class Score {
     }
 
 
-    public double getScoreDifference() {
-        if (cachedScoreDifference == null) {
-            cachedScoreDifference = (calculateTotalWhiteScore() - calculateTotalBlackScore()) / 1000.0;
+    /**
+     * Updates the score after the move was performed on the board: material and piece square values by the squares
+     * the move changed, pawn structure and rook files only if pawns or rooks changed. IncrementalScoreTest checks
+     * it against {@link #initializeScore(BitBoard)}.
+     */
+    public void update(BitBoard bitBoard, int move, GameStateEnum state) {
+        resetCachedScoreDifference();
+        pushStateBonuses();
+        applyMove(move, 1);
+        updateChangedTerms(bitBoard, move);
+        if (MoveHelper.isWhitesMove(move)) {
+            updateStateValuesWhite(state);
+        } else {
+            updateStateValuesBlack(state);
+        }
+    }
+
+    /**
+     * Takes the move back out of the score after it was taken back on the board, the state bonuses come back as they
+     * were before the move.
+     */
+    public void undo(BitBoard bitBoard, int move) {
+        resetCachedScoreDifference();
+        applyMove(move, -1);
+        updateChangedTerms(bitBoard, move);
+        popStateBonuses();
+    }
+
+    private void pushStateBonuses() {
+        if (stateBonusHistorySize == stateBonusHistory.length) {
+            stateBonusHistory = Arrays.copyOf(stateBonusHistory, stateBonusHistorySize * 2);
+        }
+        stateBonusHistory[stateBonusHistorySize++] = whiteStateBonus;
+        stateBonusHistory[stateBonusHistorySize++] = blackStateBonus;
+    }
+
+    private void popStateBonuses() {
+        blackStateBonus = stateBonusHistory[--stateBonusHistorySize];
+        whiteStateBonus = stateBonusHistory[--stateBonusHistorySize];
+    }
+
+    // Adds the material and piece square values of the move, or takes them away with a sign of -1
+    private void applyMove(int move, int sign) {
+        boolean isWhite = MoveHelper.isWhitesMove(move);
+        int fromIndex = MoveHelper.deriveFromIndex(move);
+        int toIndex = MoveHelper.deriveToIndex(move);
+        int pieceTypeBits = MoveHelper.derivePieceTypeBits(move);
+        int capturedPieceTypeBits = MoveHelper.deriveCapturedPieceTypeBits(move);
+        int promotionPieceTypeBits = MoveHelper.derivePromotionPieceTypeBits(move);
+
+        addPieceValues(isWhite, pieceTypeBits, fromIndex, -sign);
+        addPieceValues(isWhite, promotionPieceTypeBits != 0 ? promotionPieceTypeBits : pieceTypeBits, toIndex, sign);
+        if (capturedPieceTypeBits != 0) {
+            int capturedIndex = MoveHelper.isEnPassantMove(move) ? (isWhite ? toIndex - 8 : toIndex + 8) : toIndex;
+            addPieceValues(!isWhite, capturedPieceTypeBits, capturedIndex, -sign);
+        }
+        if (MoveHelper.isCastlingMove(move)) {
+            boolean kingside = toIndex > fromIndex;
+            int rookFromIndex = kingside ? (isWhite ? 7 : 63) : (isWhite ? 0 : 56);
+            int rookToIndex = kingside ? rookFromIndex - 2 : rookFromIndex + 3;
+            addPieceValues(isWhite, ROOK, rookFromIndex, -sign);
+            addPieceValues(isWhite, ROOK, rookToIndex, sign);
+        }
+    }
+
+    // The king is not counted as material, its position depends on more than its square, see updateChangedTerms
+    private void addPieceValues(boolean isWhite, int pieceTypeBits, int index, int sign) {
+        if (isWhite) {
+            switch (pieceTypeBits) {
+                case 1:
+                    whitePawnsAmountScore += sign * PAWN_VALUE;
+                    whitePawnsPosition += sign * WHITE_PAWN_POSITIONAL_VALUES[index];
+                    break;
+                case 2:
+                    whiteKnightsAmountScore += sign * KNIGHT_VALUE;
+                    whiteKnightsPosition += sign * KNIGHT_POSITIONAL_VALUES[index];
+                    break;
+                case 3:
+                    whiteBishopsAmountScore += sign * BISHOP_VALUE;
+                    whiteBishopsPosition += sign * BISHOP_POSITIONAL_VALUES[index];
+                    break;
+                case 4:
+                    whiteRooksAmountScore += sign * ROOK_VALUE;
+                    whiteRooksPosition += sign * WHITE_ROOK_POSITIONAL_VALUES[index];
+                    break;
+                case 5:
+                    whiteQueensAmountScore += sign * QUEEN_VALUE;
+                    whiteQueensPosition += sign * QUEEN_POSITIONAL_VALUES[index];
+                    break;
+                default:
+                    break;
+            }
+        } else {
+            switch (pieceTypeBits) {
+                case 1:
+                    blackPawnsAmountScore += sign * PAWN_VALUE;
+                    blackPawnsPosition += sign * BLACK_PAWN_POSITIONAL_VALUES[index];
+                    break;
+                case 2:
+                    blackKnightsAmountScore += sign * KNIGHT_VALUE;
+                    blackKnightsPosition += sign * KNIGHT_POSITIONAL_VALUES[index];
+                    break;
+                case 3:
+                    blackBishopsAmountScore += sign * BISHOP_VALUE;
+                    blackBishopsPosition += sign * BISHOP_POSITIONAL_VALUES[index];
+                    break;
+                case 4:
+                    blackRooksAmountScore += sign * ROOK_VALUE;
+                    blackRooksPosition += sign * BLACK_ROOK_POSITIONAL_VALUES[index];
+                    break;
+                case 5:
+                    blackQueensAmountScore += sign * QUEEN_VALUE;
+                    blackQueensPosition += sign * QUEEN_POSITIONAL_VALUES[index];
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Recalculates the terms over whole bitboards the move can have changed, on the board after the move or after
+     * it was taken back. Both are the same pieces, so the same terms change.
+     */
+    private void updateChangedTerms(BitBoard bitBoard, int move) {
+        boolean isWhite = MoveHelper.isWhitesMove(move);
+        int pieceTypeBits = MoveHelper.derivePieceTypeBits(move);
+        int capturedPieceTypeBits = MoveHelper.deriveCapturedPieceTypeBits(move);
+        int promotionPieceTypeBits = MoveHelper.derivePromotionPieceTypeBits(move);
+        // Passed pawns of one side depend on the pawns of the other, so a pawn structure is scored as a whole
+        boolean pawnsChanged = pieceTypeBits == PAWN || capturedPieceTypeBits == PAWN;
+        // Castling is a king move that moves a rook
+        boolean rooksChanged = pieceTypeBits == ROOK || pieceTypeBits == KING
+                || capturedPieceTypeBits == ROOK || promotionPieceTypeBits == ROOK;
+        if (pawnsChanged || rooksChanged) {
+            PawnStructure pawnStructure = pawnStructure(bitBoard);
+            if (pawnsChanged) {
+                updatePawnStructureValues(pawnStructure);
+            }
+            updateRookFileBonuses(bitBoard.getWhiteRooks(), bitBoard.getBlackRooks(), pawnStructure);
+        }
+
+        // The king values depend on the king and rook flags and, by the endgame tables, on the material
+        if (rooksChanged || capturedPieceTypeBits != 0 || promotionPieceTypeBits != 0) {
+            boolean isEndgame = bitBoard.isEndgame();
+            updateKingValuesWhite(bitBoard.getWhiteKing(), bitBoard.isWhiteKingHasCastled(), bitBoard.isWhiteKingMoved(),
+                    bitBoard.isWhiteRookA1Moved(), bitBoard.isWhiteRookH1Moved(), isEndgame);
+            updateKingValuesBlack(bitBoard.getBlackKing(), bitBoard.isBlackKingHasCastled(), bitBoard.isBlackKingMoved(),
+                    bitBoard.isBlackRookA8Moved(), bitBoard.isBlackRookH8Moved(), isEndgame);
+        }
+
+        updateStartingSquarePenaltyWhite(bitBoard.getWhiteKnights(), bitBoard.getWhiteBishops(), bitBoard.getWhiteRooks());
+        updateStartingSquarePenaltyBlack(bitBoard.getBlackKnights(), bitBoard.getBlackBishops(), bitBoard.getBlackRooks());
+    }
+
+    private PawnStructure pawnStructure(BitBoard bitBoard) {
+        if (pawnHashTable != null) {
+            return pawnHashTable.get(bitBoard.getPawnHash(), bitBoard.getWhitePawns(), bitBoard.getBlackPawns());
+        }
+        calculatedPawnStructure.calculate(bitBoard.getPawnHash(), bitBoard.getWhitePawns(), bitBoard.getBlackPawns());
+        return calculatedPawnStructure;
+    }
+
+    /**
+     * @return white's score minus black's score in millipawns
+     */
+    public int getScoreDifference() {
+        if (!scoreDifferenceCached) {
+            cachedScoreDifference = calculateTotalWhiteScore() - calculateTotalBlackScore();
+            scoreDifferenceCached = true;
         }
 
         return cachedScoreDifference;
@@ -247,6 +455,7 @@ public class Score {
         totalWhiteScore += whiteCenterPawnBonus;
         totalWhiteScore += whiteDoubledPawnPenalty;
         totalWhiteScore += whiteIsolatedPawnPenalty;
+        totalWhiteScore += whitePassedPawnBonus;
 
         totalWhiteScore += whiteRooksHalfOpenFileBonus;
         totalWhiteScore += whiteRooksOpenFileBonus;
@@ -281,6 +490,7 @@ public class Score {
         totalBlackScore += blackCenterPawnBonus;
         totalBlackScore += blackDoubledPawnPenalty;
         totalBlackScore += blackIsolatedPawnPenalty;
+        totalBlackScore += blackPassedPawnBonus;
 
         totalBlackScore += blackRooksHalfOpenFileBonus;
         totalBlackScore += blackRooksOpenFileBonus;
@@ -331,38 +541,23 @@ public class Score {
      * Bonuses and Penalties
      */
 
-    // Method to add penalty for doubled pawns
-    public void updateDoubledPawnPenaltyWhite(long whitePawns) {
-        whiteDoubledPawnPenalty = countDoubledPawns(whitePawns) * DOUBLED_PAWN_PENALTY;
+    public void updatePawnStructureValues(PawnStructure pawnStructure) {
+        whiteDoubledPawnPenalty = pawnStructure.getWhiteDoubledPawnPenalty();
+        blackDoubledPawnPenalty = pawnStructure.getBlackDoubledPawnPenalty();
+        whiteIsolatedPawnPenalty = pawnStructure.getWhiteIsolatedPawnPenalty();
+        blackIsolatedPawnPenalty = pawnStructure.getBlackIsolatedPawnPenalty();
+        whitePassedPawnBonus = pawnStructure.getWhitePassedPawnBonus();
+        blackPassedPawnBonus = pawnStructure.getBlackPassedPawnBonus();
     }
 
-    public void updateDoubledPawnPenaltyBlack(long blackPawns) {
-        blackDoubledPawnPenalty = countDoubledPawns(blackPawns) * DOUBLED_PAWN_PENALTY;
-    }
-
-    // Method to add penalty for isolated pawns
-    public void updateIsolatedPawnPenaltyWhite(long whitePawns) {
-        whiteIsolatedPawnPenalty = countIsolatedPawns(whitePawns) * ISOLATED_PAWN_PENALTY;
-    }
-
-    public void updateIsolatedPawnPenaltyBlack(long blackPawns) {
-        blackIsolatedPawnPenalty = countIsolatedPawns(blackPawns) * ISOLATED_PAWN_PENALTY;
-    }
-
-    public void updateRookHalfOpenFileBonusWhite(long whiteRooks, long whitePawns, long blackPawns) {
-        whiteRooksHalfOpenFileBonus = countRooksOnHalfOpenFiles(whiteRooks, whitePawns, blackPawns) * ROOK_HALF_OPEN_FILE_BONUS;
-    }
-
-    public void updateRookHalfOpenFileBonusBlack(long blackRooks, long blackPawns, long whitePawns) {
-        blackRooksHalfOpenFileBonus = countRooksOnHalfOpenFiles(blackRooks, blackPawns, whitePawns) * ROOK_HALF_OPEN_FILE_BONUS;
-    }
-
-    public void updateRookOpenFileBonusWhite(long whiteRooks, long allPawns) {
-        whiteRooksOpenFileBonus = countRooksOnOpenFiles(whiteRooks, allPawns) * ROOK_OPEN_FILE_BONUS;
-    }
-
-    public void updateRookOpenFileBonusBlack(long blackRooks, long allPawns) {
-        blackRooksOpenFileBonus = countRooksOnOpenFiles(blackRooks, allPawns) * ROOK_OPEN_FILE_BONUS;
+    // Every file with a rook on it counts once
+    public void updateRookFileBonuses(long whiteRooks, long blackRooks, PawnStructure pawnStructure) {
+        int whiteRookFiles = BitHelper.files(whiteRooks);
+        int blackRookFiles = BitHelper.files(blackRooks);
+        whiteRooksHalfOpenFileBonus = Integer.bitCount(whiteRookFiles & pawnStructure.getWhiteHalfOpenFiles()) * ROOK_HALF_OPEN_FILE_BONUS;
+        blackRooksHalfOpenFileBonus = Integer.bitCount(blackRookFiles & pawnStructure.getBlackHalfOpenFiles()) * ROOK_HALF_OPEN_FILE_BONUS;
+        whiteRooksOpenFileBonus = Integer.bitCount(whiteRookFiles & pawnStructure.getOpenFiles()) * ROOK_OPEN_FILE_BONUS;
+        blackRooksOpenFileBonus = Integer.bitCount(blackRookFiles & pawnStructure.getOpenFiles()) * ROOK_OPEN_FILE_BONUS;
     }
 
     /**
@@ -496,118 +691,6 @@ public class Score {
         }
     }
 
-    public void updateWhitePawnValues(BitBoard bitBoard) {
-        long whitePawns = bitBoard.getWhitePawns();
-
-        this.whitePawnsAmountScore = Long.bitCount(whitePawns) * PAWN_VALUE;
-        updateIsolatedPawnPenaltyWhite(whitePawns);
-        updateDoubledPawnPenaltyWhite(whitePawns);
-        updatePawnsPositionBonusWhite(whitePawns);
-
-        //check if Rook is now on an HalfOpen/Open File
-        updateBlackRookValues(bitBoard);
-        updateWhiteRookValues(bitBoard);
-    }
-
-    public void updateBlackPawnValues(BitBoard bitBoard) {
-        long blackPawns = bitBoard.getBlackPawns();
-
-        this.blackPawnsAmountScore = Long.bitCount(blackPawns) * PAWN_VALUE;
-        updateIsolatedPawnPenaltyBlack(blackPawns);
-        updateDoubledPawnPenaltyBlack(blackPawns);
-        updatePawnsPositionBonusBlack(blackPawns);
-
-        //check if Rook is now on an HalfOpen/Open File
-        updateBlackRookValues(bitBoard);
-        updateWhiteRookValues(bitBoard);
-    }
-
-    public void updateWhiteKnightValues(long whiteKnights, long whiteBishops, long whiteRooks) {
-        this.whiteKnightsAmountScore = Long.bitCount(whiteKnights) * KNIGHT_VALUE;
-        updateKnightsPositionBonusWhite(whiteKnights);
-        updateStartingSquarePenaltyWhite(whiteKnights, whiteBishops, whiteRooks);
-    }
-
-    public void updateBlackKnightValues(long blackKnights, long blackBishops, long blackRooks) {
-        this.blackKnightsAmountScore = Long.bitCount(blackKnights) * KNIGHT_VALUE;
-        updateKnightsPositionBonusBlack(blackKnights);
-        updateStartingSquarePenaltyBlack(blackKnights, blackBishops, blackRooks);
-    }
-
-    public void updateWhiteBishopValues(long whiteBishops, long whiteKnights, long whiteRooks) {
-        this.whiteBishopsAmountScore = Long.bitCount(whiteBishops) * BISHOP_VALUE;
-        updateBishopsPositionBonusWhite(whiteBishops);
-        updateStartingSquarePenaltyWhite(whiteKnights, whiteBishops, whiteRooks);
-    }
-
-    public void updateBlackBishopValues(long blackBishops, long blackKnights, long blackRooks) {
-        this.blackBishopsAmountScore = Long.bitCount(blackBishops) * BISHOP_VALUE;
-        updateBishopsPositionBonusBlack(blackBishops);
-        updateStartingSquarePenaltyBlack(blackKnights, blackBishops, blackRooks);
-    }
-
-    public void updateWhiteRookValues(BitBoard bitBoard) {
-
-        long whitePawns = bitBoard.getWhitePawns();
-        long blackPawns = bitBoard.getBlackPawns();
-        long whiteKing = bitBoard.getWhiteKing();
-
-        long whiteKnights = bitBoard.getWhiteKnights();
-        long whiteBishops = bitBoard.getWhiteBishops();
-        long whiteRooks = bitBoard.getWhiteRooks();
-
-        boolean isCastled = bitBoard.isWhiteKingHasCastled();
-        boolean isWhiteKingHasMoved = bitBoard.isWhiteKingMoved();
-        boolean rookA1Moved = bitBoard.isWhiteRookA1Moved();
-        boolean rookH1Moved = bitBoard.isWhiteRookH1Moved();
-        boolean isEndgame = bitBoard.isEndgame();
-
-
-        this.whiteRooksAmountScore = Long.bitCount(whiteRooks) * ROOK_VALUE;
-
-        updateRooksPositionBonusWhite(whiteRooks);
-
-        updateRookHalfOpenFileBonusWhite(whiteRooks, whitePawns, blackPawns);
-        updateRookOpenFileBonusWhite(whiteRooks, whitePawns | blackPawns);
-
-        updateStartingSquarePenaltyWhite(whiteKnights, whiteBishops, whiteRooks);
-        updateKingValuesWhite(whiteKing, isCastled, isWhiteKingHasMoved, rookA1Moved, rookH1Moved, isEndgame);
-    }
-
-    public void updateBlackRookValues(BitBoard bitBoard) {
-        long blackPawns = bitBoard.getBlackPawns();
-        long whitePawns = bitBoard.getWhitePawns();
-        long blackKing = bitBoard.getBlackKing();
-
-        long blackKnights = bitBoard.getBlackKnights();
-        long blackBishops = bitBoard.getBlackBishops();
-        long blackRooks = bitBoard.getBlackRooks();
-
-        boolean isCastled = bitBoard.isBlackKingHasCastled();
-        boolean isBlackKingMoved = bitBoard.isBlackKingMoved();
-        boolean rookA8Moved = bitBoard.isBlackRookA8Moved();
-        boolean rookH8Moved = bitBoard.isBlackRookH8Moved();
-        boolean isEndgame = bitBoard.isEndgame();
-
-        this.blackRooksAmountScore = Long.bitCount(blackRooks) * ROOK_VALUE;
-
-        updateRooksPositionBonusBlack(blackRooks);
-
-        updateRookHalfOpenFileBonusBlack(blackRooks, blackPawns, whitePawns);
-        updateRookOpenFileBonusBlack(blackRooks, whitePawns | blackPawns);
-
-        updateStartingSquarePenaltyBlack(blackKnights, blackBishops, blackRooks);
-        updateKingValuesBlack(blackKing, isCastled, isBlackKingMoved, rookA8Moved, rookH8Moved, isEndgame);
-    }
-
-    public void updateWhiteQueenValues(long whiteQueens) {
-        this.whiteQueensAmountScore = Long.bitCount(whiteQueens) * QUEEN_VALUE;
-    }
-
-    public void updateBlackQueenValues(long blackQueens) {
-        this.blackQueensAmountScore = Long.bitCount(blackQueens) * QUEEN_VALUE;
-    }
-
     public void updateKingValuesWhite(long whiteKing, boolean isCastled, boolean isWhiteKingMoved, boolean rookA1Moved, boolean rookH1Moved, boolean isEndgame) {
         updateWhiteKingsPositionBonus(whiteKing, isCastled, isWhiteKingMoved, rookA1Moved, rookH1Moved, isEndgame);
     }
@@ -637,7 +720,7 @@ public class Score {
     }
 
     public void resetCachedScoreDifference() {
-        this.cachedScoreDifference = null;
+        this.scoreDifferenceCached = false;
     }
 
     public static int getPieceValue(int pieceTypeBits) {
@@ -0,0 +1,70 @@
+package julius.game.chessengine.board;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * The legal moves among the generated captures must be exactly the captures and promotions of the legal moves.
+ */
+public class CaptureGenerationTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+
+    @Test
+    public void capturesMatchLegalMovesToDepthTwo() {
+        for (String fen : FENS) {
+            compareRecursively(FEN.translateFENtoBitBoard(fen), 2);
+        }
+    }
+
+    @Test
+    public void captureSliceMatchesCaptureList() {
+        for (String fen : FENS) {
+            BitBoard bitBoard = FEN.translateFENtoBitBoard(fen);
+            MoveStack stack = new MoveStack(4);
+            int count = bitBoard.generateCaptures(stack, 2);
+            int[] slice = Arrays.copyOfRange(stack.getMoves(), stack.start(2), stack.start(2) + count);
+
+            MoveList captures = new MoveList();
+            bitBoard.generateCaptures(bitBoard.whitesTurn, captures);
+            assertArrayEquals(Arrays.stream(captures.toArray()).sorted().toArray(), Arrays.stream(slice).sorted().toArray(), fen);
+        }
+    }
+
+    private void compareRecursively(BitBoard bitBoard, int depth) {
+        compareCaptures(bitBoard);
+        if (depth == 0) {
+            return;
+        }
+        MoveList legalMoves = bitBoard.generateLegalMoves();
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.getMove(i);
+            bitBoard.performMove(move);
+            compareRecursively(bitBoard, depth - 1);
+            bitBoard.undoMove(move);
+        }
+    }
+
+    private void compareCaptures(BitBoard bitBoard) {
+        int[] expected = Arrays.stream(bitBoard.generateLegalMoves().toArray())
+                .filter(m -> MoveHelper.isCapture(m) || MoveHelper.isPawnPromotionMove(m))
+                .sorted().toArray();
+
+        MoveList captures = new MoveList();
+        bitBoard.generateCaptures(bitBoard.whitesTurn, captures);
+        int[] actual = Arrays.stream(captures.toArray())
+                .filter(bitBoard::isLegal)
+                .sorted().toArray();
+
+        assertArrayEquals(expected, actual, FEN.translateBoardToFEN(bitBoard).toString());
+    }
+}
@@ -0,0 +1,57 @@
+package julius.game.chessengine.board;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The hash kept up to date by performMove and undoMove must always equal the hash calculated from scratch.
+ */
+public class IncrementalHashTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+
+    @Test
+    public void hashMatchesCalculatedHashToDepthThree() {
+        for (String fen : FENS) {
+            BitBoard bitBoard = FEN.translateFENtoBitBoard(fen);
+            verifyRecursively(bitBoard, 3);
+        }
+    }
+
+    @Test
+    public void nullMoveRestoresHash() {
+        BitBoard bitBoard = FEN.translateFENtoBitBoard("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3");
+        long hash = bitBoard.getBoardStateHash();
+
+        bitBoard.performNullMove();
+        assertEquals(bitBoard.calculateBoardStateHash(), bitBoard.getBoardStateHash());
+        bitBoard.undoNullMove();
+
+        assertEquals(hash, bitBoard.getBoardStateHash());
+    }
+
+    private void verifyRecursively(BitBoard bitBoard, int depth) {
+        assertEquals(bitBoard.calculateBoardStateHash(), bitBoard.getBoardStateHash());
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            long hashBefore = bitBoard.getBoardStateHash();
+            bitBoard.performMove(move);
+            if (!bitBoard.isInCheck(MoveHelper.isWhitesMove(move))) {
+                verifyRecursively(bitBoard, depth - 1);
+            }
+            bitBoard.undoMove(move);
+            assertEquals(hashBefore, bitBoard.getBoardStateHash());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.engine.GameStateEnum;
+import julius.game.chessengine.utils.Score;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The score kept up to date by update and undo must always equal the score initialized from the board plus the state
+ * bonuses, and undo must bring back the score from before the move, state bonuses included.
+ */
+public class IncrementalScoreTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+
+    @Test
+    public void scoreMatchesInitializedScoreToDepthThree() {
+        for (String fen : FENS) {
+            BitBoard bitBoard = FEN.translateFENtoBitBoard(fen);
+            Score score = new Score();
+            score.initializeScore(bitBoard);
+            verifyRecursively(bitBoard, score, 3);
+        }
+    }
+
+    private void verifyRecursively(BitBoard bitBoard, Score score, int depth) {
+        int stateBonusDifference = score.getWhiteStateBonus() - score.getBlackStateBonus();
+        assertEquals(initializedScoreDifference(bitBoard) + stateBonusDifference, score.getScoreDifference());
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            int scoreBefore = score.getScoreDifference();
+            bitBoard.performMove(move);
+            score.update(bitBoard, move, state(bitBoard));
+            if (!bitBoard.isInCheck(MoveHelper.isWhitesMove(move))) {
+                verifyRecursively(bitBoard, score, depth - 1);
+            }
+            bitBoard.undoMove(move);
+            score.undo(bitBoard, move);
+            assertEquals(scoreBefore, score.getScoreDifference());
+        }
+    }
+
+    // The state after a move, like the game and the search set it
+    private static GameStateEnum state(BitBoard bitBoard) {
+        if (!bitBoard.isInCheck()) {
+            return GameStateEnum.PLAY;
+        }
+        if (bitBoard.generateLegalMoves(new int[MoveList.MAX_SIZE], 0) == 0) {
+            return bitBoard.whitesTurn ? GameStateEnum.BLACK_WON : GameStateEnum.WHITE_WON;
+        }
+        return bitBoard.whitesTurn ? GameStateEnum.WHITE_IN_CHECK : GameStateEnum.BLACK_IN_CHECK;
+    }
+
+    private static int initializedScoreDifference(BitBoard bitBoard) {
+        Score score = new Score();
+        score.initializeScore(bitBoard);
+        return score.getScoreDifference();
+    }
+}
@@ -0,0 +1,53 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.ai.AI;
+import julius.game.chessengine.ai.MoveAndScore;
+import julius.game.chessengine.engine.Engine;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Time-to-depth of the Lazy SMP search for an increasing number of search threads.
+ * Results are collected in StatisticsLazySMP.txt. Tagged as benchmark, so it only runs on request, see pom.xml.
+ */
+@Log4j2
+@Tag("benchmark")
+public class LazySmpBenchmarkTest {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+    @Test
+    public void timeToDepthStartPosition() {
+        benchmark("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 4);
+    }
+
+    @Test
+    public void timeToDepthQueensGambitDeclined() {
+        benchmark("r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP3PPP/R2QKB1R w KQ - 0 8", 3);
+    }
+
+    private void benchmark(String fen, int depth) {
+        double singleThreadMs = 0;
+        for (int threads : THREADS) {
+            Engine engine = new Engine();
+            engine.importBoardFromFen(fen);
+            AI ai = new AI(engine, 64, false, threads);
+
+            long startTime = System.nanoTime();
+            MoveAndScore best = ai.searchToDepth(depth);
+            double ms = (System.nanoTime() - startTime) / 1e6;
+            if (threads == 1) {
+                singleThreadMs = ms;
+            }
+
+            assertNotNull(best);
+            log.info("depth {} with {} thread(s): {} ms, {} nodes, speedup {}, best move {}",
+                    depth, threads, ms, ai.getLastSearchNodeCount(), String.format("%.2f", singleThreadMs / ms),
+                    Move.convertIntToMove(best.getMove()));
+            ai.setSearchThreads(1); // shuts the helper pool down
+        }
+    }
+}
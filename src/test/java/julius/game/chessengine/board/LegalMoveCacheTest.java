@@ -0,0 +1,92 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.cache.LegalMoveCache;
+import julius.game.chessengine.engine.Engine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The legal move cache of the engine, shared by all copies of the engine without a lock.
+ */
+public class LegalMoveCacheTest {
+
+    @Test
+    public void storesPackedCopyAndCountsLookups() {
+        LegalMoveCache cache = new LegalMoveCache(64);
+        int[] buffer = {1, 2, 3, 0, 0};
+
+        assertNull(cache.get(42));
+        cache.put(42, buffer, 3);
+        buffer[0] = 7;
+
+        assertArrayEquals(new int[]{1, 2, 3}, cache.get(42));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(500, cache.getHitPermille());
+    }
+
+    @Test
+    public void fullBucketEvictsOldestEntry() {
+        LegalMoveCache cache = new LegalMoveCache(8);
+        int buckets = cache.capacity() / 4;
+        for (long i = 0; i < 5; i++) {
+            cache.put(i * buckets, new int[]{(int) i}, 1);
+        }
+
+        assertNull(cache.get(0));
+        for (long i = 1; i < 5; i++) {
+            assertArrayEquals(new int[]{(int) i}, cache.get(i * buckets));
+        }
+    }
+
+    @Test
+    public void concurrentReadersNeverSeeMovesOfAnotherKey() throws InterruptedException {
+        LegalMoveCache cache = new LegalMoveCache(256);
+        AtomicBoolean mismatch = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    long key = (i * 31L + seed) % 1024;
+                    int[] moves = cache.get(key);
+                    if (moves == null) {
+                        cache.put(key, new int[]{(int) key, (int) key * 3}, 2);
+                    } else if (moves.length != 2 || moves[0] != key || moves[1] != key * 3) {
+                        mismatch.set(true);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertFalse(mismatch.get());
+        assertTrue(cache.getHits() > 0);
+    }
+
+    @Test
+    public void engineServesRepeatedPositionFromCache() {
+        Engine engine = new Engine();
+        MoveList initialMoves = new MoveList(engine.getAllLegalMoves());
+        int move = initialMoves.getMove(0);
+        engine.performMove(move);
+        engine.undoLastMove();
+
+        assertTrue(engine.getLegalMovesCache().getHits() > 0);
+        assertArrayEquals(initialMoves.toArray(), engine.getAllLegalMoves().toArray());
+    }
+}
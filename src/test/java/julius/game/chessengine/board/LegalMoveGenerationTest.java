@@ -0,0 +1,78 @@
+package julius.game.chessengine.board;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The legal move generator must produce exactly the pseudo legal moves that do not leave the own king in check,
+ * and the cached check information must match the one of a fresh board after every move and undo.
+ */
+public class LegalMoveGenerationTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            // En passant that would expose the king along the rank
+            "8/8/8/K1pP3r/8/8/8/7k w - c6 0 2",
+            // Double check and pinned pieces
+            "4k3/8/8/8/1b6/8/3P4/r3K2R w K - 0 1"
+    };
+
+    @Test
+    public void legalMovesMatchFilteredPseudoLegalMovesToDepthThree() {
+        for (String fen : FENS) {
+            compareRecursively(FEN.translateFENtoBitBoard(fen), 3);
+        }
+    }
+
+    @Test
+    public void moveStackSliceMatchesMoveList() {
+        MoveStack stack = new MoveStack(4);
+        for (String fen : FENS) {
+            BitBoard bitBoard = FEN.translateFENtoBitBoard(fen);
+            int count = bitBoard.generateLegalMoves(stack, 3);
+            int[] slice = Arrays.copyOfRange(stack.getMoves(), stack.start(3), stack.end(3));
+
+            assertEquals(count, slice.length);
+            assertArrayEquals(bitBoard.generateLegalMoves().toArray(), slice, fen);
+        }
+    }
+
+    private void compareRecursively(BitBoard bitBoard, int depth) {
+        MoveList legalMoves = bitBoard.generateLegalMoves();
+        MoveList pseudoLegalMoves = bitBoard.getAllCurrentPossibleMoves();
+        String fen = FEN.translateBoardToFEN(bitBoard).toString();
+        int[] expected = Arrays.stream(pseudoLegalMoves.toArray()).filter(m -> leavesKingSafe(bitBoard, m)).sorted().toArray();
+        int[] actual = Arrays.stream(legalMoves.toArray()).sorted().toArray();
+        assertArrayEquals(expected, actual, fen);
+        assertArrayEquals(expected, Arrays.stream(pseudoLegalMoves.toArray()).filter(bitBoard::isLegal).sorted().toArray(), fen);
+
+        BitBoard freshBoard = new BitBoard(bitBoard);
+        assertEquals(freshBoard.getCheckers(), bitBoard.getCheckers(), fen);
+        assertEquals(freshBoard.getPinnedPieces(), bitBoard.getPinnedPieces(), fen);
+
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.getMove(i);
+            bitBoard.performMove(move);
+            compareRecursively(bitBoard, depth - 1);
+            bitBoard.undoMove(move);
+        }
+    }
+
+    private static boolean leavesKingSafe(BitBoard bitBoard, int move) {
+        bitBoard.performMove(move);
+        boolean safe = !bitBoard.isInCheck(MoveHelper.isWhitesMove(move));
+        bitBoard.undoMove(move);
+        return safe;
+    }
+}
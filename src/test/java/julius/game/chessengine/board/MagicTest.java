@@ -2,9 +2,11 @@ package julius.game.chessengine.board;
 
 import julius.game.chessengine.helper.BishopHelper;
 import julius.game.chessengine.helper.RookHelper;
+import julius.game.chessengine.helper.SliderHelper;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
 import java.util.Set;
 
 @Log4j2
@@ -50,6 +52,23 @@ public class MagicTest {
 
     }
 
+    @Test
+    public void testSliderTable() {
+        RookHelper rookHelper = RookHelper.getInstance();
+        BishopHelper bishopHelper = BishopHelper.getInstance();
+        Random random = new Random(42);
+
+        for (int square = 0; square < 64; square++) {
+            for (int i = 0; i < 2000; i++) {
+                // Pieces outside the masks must not change the lookup
+                long occupied = random.nextLong() & random.nextLong();
+                assert SliderHelper.bishopAttacks(square, occupied) == bishopHelper.calculateBishopMoves(square, occupied) : "Bishop mismatch for square " + square;
+                assert SliderHelper.rookAttacks(square, occupied) == rookHelper.calculateRookMoves(square, occupied) : "Rook mismatch for square " + square;
+                assert SliderHelper.queenAttacks(square, occupied) == (bishopHelper.calculateBishopMoves(square, occupied) | rookHelper.calculateRookMoves(square, occupied)) : "Queen mismatch for square " + square;
+            }
+        }
+    }
+
     private void testRookMovesForSquare(RookHelper rookHelper, int square) {
         long mask = rookHelper.generateOccupancyMask(square);
         Set<Long> occupancies = rookHelper.generateAllOccupancies(mask);
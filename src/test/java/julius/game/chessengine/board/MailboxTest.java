@@ -0,0 +1,61 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.utils.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The piece array kept next to the bitboards must describe the same position after every move and undo.
+ */
+public class MailboxTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1"
+    };
+
+    @Test
+    public void squaresMatchBitboardsToDepthThree() {
+        for (String fen : FENS) {
+            verifyRecursively(FEN.translateFENtoBitBoard(fen), 3);
+        }
+    }
+
+    private void verifyRecursively(BitBoard bitBoard, int depth) {
+        verifySquares(bitBoard);
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            bitBoard.performMove(move);
+            if (!bitBoard.isInCheck(MoveHelper.isWhitesMove(move))) {
+                verifyRecursively(bitBoard, depth - 1);
+            }
+            bitBoard.undoMove(move);
+        }
+        verifySquares(bitBoard);
+    }
+
+    private void verifySquares(BitBoard bitBoard) {
+        for (int index = 0; index < 64; index++) {
+            int expectedTypeBits = 0;
+            Color expectedColor = null;
+            for (int pieceTypeBits = 1; pieceTypeBits <= 6; pieceTypeBits++) {
+                if ((bitBoard.intToPiecesBitboard(pieceTypeBits, true) & (1L << index)) != 0) {
+                    expectedTypeBits = pieceTypeBits;
+                    expectedColor = Color.WHITE;
+                } else if ((bitBoard.intToPiecesBitboard(pieceTypeBits, false) & (1L << index)) != 0) {
+                    expectedTypeBits = pieceTypeBits;
+                    expectedColor = Color.BLACK;
+                }
+            }
+            assertEquals(expectedTypeBits, bitBoard.getPieceTypeBitsAtIndex(index), "square " + index);
+            assertEquals(expectedColor, bitBoard.getPieceColorAtIndex(index), "square " + index);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.cache.PawnHashTable;
+import julius.game.chessengine.cache.PawnStructure;
+import julius.game.chessengine.engine.GameStateEnum;
+import julius.game.chessengine.utils.Score;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The pawn hash kept up to date by performMove and undoMove and the pawn structures looked up by it.
+ */
+public class PawnHashTableTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1"
+    };
+
+    @Test
+    public void pawnHashMatchesCalculatedPawnHashToDepthThree() {
+        for (String fen : FENS) {
+            verifyPawnHashRecursively(FEN.translateFENtoBitBoard(fen), 3);
+        }
+    }
+
+    @Test
+    public void pawnHashOnlyChangesWithThePawns() {
+        BitBoard bitBoard = new BitBoard();
+        long pawnHash = bitBoard.getPawnHash();
+
+        bitBoard.performMove(findMove(bitBoard, "g1", "f3"));
+        assertEquals(pawnHash, bitBoard.getPawnHash());
+
+        bitBoard.performMove(findMove(bitBoard, "e7", "e5"));
+        assertNotEquals(pawnHash, bitBoard.getPawnHash());
+    }
+
+    @Test
+    public void tableReturnsTheCalculatedStructureAndCountsHits() {
+        BitBoard bitBoard = FEN.translateFENtoBitBoard("4k3/2p3p1/8/P2p4/8/3P4/P4PP1/4K3 w - - 0 1");
+        PawnHashTable table = new PawnHashTable(1024);
+        PawnStructure calculated = new PawnStructure();
+        calculated.calculate(bitBoard.getPawnHash(), bitBoard.getWhitePawns(), bitBoard.getBlackPawns());
+
+        PawnStructure first = table.get(bitBoard.getPawnHash(), bitBoard.getWhitePawns(), bitBoard.getBlackPawns());
+        PawnStructure second = table.get(bitBoard.getPawnHash(), bitBoard.getWhitePawns(), bitBoard.getBlackPawns());
+
+        assertSame(first, second);
+        assertEquals(1, table.getMisses());
+        assertEquals(1, table.getHits());
+        assertEquals(500, table.getHitPermille());
+        assertEquals(calculated.getWhiteDoubledPawnPenalty(), first.getWhiteDoubledPawnPenalty());
+        assertEquals(calculated.getBlackIsolatedPawnPenalty(), first.getBlackIsolatedPawnPenalty());
+        assertEquals(calculated.getWhitePassedPawns(), first.getWhitePassedPawns());
+        assertEquals(calculated.getOpenFiles(), first.getOpenFiles());
+    }
+
+    @Test
+    public void passedPawnsAndFiles() {
+        // White a5 is passed with a2 behind it, d3 and d5 block each other, c7 is held by d3 and g7 by f2 and g2
+        BitBoard bitBoard = FEN.translateFENtoBitBoard("4k3/2p3p1/8/P2p4/8/3P4/P4PP1/4K3 w - - 0 1");
+        PawnStructure structure = new PawnStructure();
+        structure.calculate(bitBoard.getPawnHash(), bitBoard.getWhitePawns(), bitBoard.getBlackPawns());
+
+        assertEquals(1L << 32, structure.getWhitePassedPawns()); // a5
+        assertEquals(0L, structure.getBlackPassedPawns());
+        assertEquals(PawnStructure.PASSED_PAWN_BONUS, structure.getWhitePassedPawnBonus());
+        assertEquals(PawnStructure.DOUBLED_PAWN_PENALTY, structure.getWhiteDoubledPawnPenalty());
+        assertEquals(0b1001_0010, structure.getOpenFiles()); // b, e and h
+        assertEquals(0b0000_0100, structure.getWhiteHalfOpenFiles()); // c
+        assertEquals(0b0010_0001, structure.getBlackHalfOpenFiles()); // a and f
+    }
+
+    @Test
+    public void scoreWithPawnHashTableMatchesInitializedScore() {
+        PawnHashTable table = new PawnHashTable(64);
+        for (String fen : FENS) {
+            BitBoard bitBoard = FEN.translateFENtoBitBoard(fen);
+            Score score = new Score();
+            score.usePawnHashTable(table);
+            score.initializeScore(bitBoard);
+            verifyScoreRecursively(bitBoard, score, 2);
+        }
+        assertNotEquals(0, table.getHits());
+    }
+
+    private static int findMove(BitBoard bitBoard, String from, String to) {
+        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            if (MoveHelper.deriveFromIndex(move) == MoveHelper.convertStringToIndex(from)
+                    && MoveHelper.deriveToIndex(move) == MoveHelper.convertStringToIndex(to)) {
+                return move;
+            }
+        }
+        throw new IllegalArgumentException("No legal move " + from + to);
+    }
+
+    private void verifyPawnHashRecursively(BitBoard bitBoard, int depth) {
+        assertEquals(bitBoard.calculatePawnHash(), bitBoard.getPawnHash());
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            long pawnHashBefore = bitBoard.getPawnHash();
+            bitBoard.performMove(move);
+            if (!bitBoard.isInCheck(MoveHelper.isWhitesMove(move))) {
+                verifyPawnHashRecursively(bitBoard, depth - 1);
+            }
+            bitBoard.undoMove(move);
+            assertEquals(pawnHashBefore, bitBoard.getPawnHash());
+        }
+    }
+
+    private void verifyScoreRecursively(BitBoard bitBoard, Score score, int depth) {
+        Score initialized = new Score();
+        initialized.initializeScore(bitBoard);
+        assertEquals(initialized.getScoreDifference(), score.getScoreDifference());
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            bitBoard.performMove(move);
+            score.update(bitBoard, move, GameStateEnum.PLAY);
+            if (!bitBoard.isInCheck(MoveHelper.isWhitesMove(move))) {
+                verifyScoreRecursively(bitBoard, score, depth - 1);
+            }
+            bitBoard.undoMove(move);
+            score.undo(bitBoard, move);
+        }
+    }
+}
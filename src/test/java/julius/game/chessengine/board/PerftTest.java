@@ -0,0 +1,73 @@
+package julius.game.chessengine.board;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Perft on the bare {@link BitBoard} against the counts of perftsuite.epd. The throughput test collects its results
+ * in StatisticsPERFT.txt and is tagged as benchmark, so it only runs on request, see pom.xml.
+ */
+@Log4j2
+public class PerftTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void suiteMatchesToDepthFour() {
+        List<String> suite = Perft.loadSuite(Perft.PERFT_SUITE_PATH);
+        List<PerftSuiteResult> results = new Perft(16, 1).runSuite(suite, 4);
+
+        assertFalse(results.isEmpty());
+        for (PerftSuiteResult result : results) {
+            assertTrue(result.isPassed(), result.getFen() + " depth " + result.getDepth()
+                    + ": expected " + result.getExpectedNodes() + ", was " + result.getNodes());
+        }
+    }
+
+    @Test
+    public void hashedAndParallelCountsMatchPlainCount() {
+        long nodes = new Perft(0, 1).perft(FEN.translateFENtoBitBoard(KIWIPETE), 4);
+
+        assertEquals(4085603, nodes);
+        assertEquals(nodes, new Perft(16, 1).perft(FEN.translateFENtoBitBoard(KIWIPETE), 4));
+        assertEquals(nodes, new Perft(0, 4).perft(FEN.translateFENtoBitBoard(KIWIPETE), 4));
+        assertEquals(nodes, new Perft(16, 4).perft(FEN.translateFENtoBitBoard(KIWIPETE), 4));
+    }
+
+    @Test
+    public void divideCountsEveryRootMove() {
+        Map<String, Long> startingPosition = new Perft(0, 1).divide(new BitBoard(), 2);
+        assertEquals(20, startingPosition.size());
+        assertEquals(20, (long) startingPosition.get("e2e4"));
+        assertEquals(20, (long) startingPosition.get("g1f3"));
+
+        Map<String, Long> promotions = new Perft(0, 1).divide(FEN.translateFENtoBitBoard("8/P1k5/K7/8/8/8/8/8 w - - 0 1"), 1);
+        assertEquals(6, promotions.size());
+        assertTrue(promotions.keySet().containsAll(List.of("a7a8q", "a7a8r", "a7a8b", "a7a8n")));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void throughputOfStartingPosition() {
+        int depth = 5;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Perft[] perfts = {new Perft(0, 1), new Perft(64, 1), new Perft(64, threads)};
+        String[] names = {"plain", "hash 64 MB", "hash 64 MB, " + threads + " threads"};
+        for (int i = 0; i < perfts.length; i++) {
+            long startTime = System.nanoTime();
+            long nodes = perfts[i].perft(new BitBoard(), depth);
+            double ms = (System.nanoTime() - startTime) / 1e6;
+
+            assertEquals(4865609, nodes);
+            log.info("perft {} {}: {} nodes, {} ms, {} nodes/s", depth, names[i], nodes, ms, (long) (nodes * 1000 / ms));
+        }
+    }
+}
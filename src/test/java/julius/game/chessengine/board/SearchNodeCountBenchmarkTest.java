@@ -0,0 +1,69 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.ai.AI;
+import julius.game.chessengine.ai.MoveAndScore;
+import julius.game.chessengine.engine.Engine;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Nodes searched to a fixed depth and depth reached in a fixed time on a fixed set of positions, single threaded.
+ * Results are collected in StatisticsSearch.txt. Tagged as benchmark, so it only runs on request, see pom.xml.
+ */
+@Log4j2
+@Tag("benchmark")
+public class SearchNodeCountBenchmarkTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP3PPP/R2QKB1R w KQ - 0 8",
+            "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+            "rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w KQkq - 1 5",
+            "8/5pk1/6p1/8/3R4/6P1/5PKP/r7 w - - 0 1"
+    };
+    private static final int[] DEPTHS = {4, 3, 3, 3, 4};
+    private static final long TIME_LIMIT_MS = 1000;
+
+    @Test
+    public void nodeCountToFixedDepth() {
+        long totalNodes = 0;
+        double totalMs = 0;
+        for (int i = 0; i < FENS.length; i++) {
+            Engine engine = new Engine();
+            engine.importBoardFromFen(FENS[i]);
+            AI ai = new AI(engine, 64, false, 1);
+
+            long startTime = System.nanoTime();
+            MoveAndScore best = ai.searchToDepth(DEPTHS[i]);
+            double ms = (System.nanoTime() - startTime) / 1e6;
+
+            assertNotNull(best);
+            totalNodes += ai.getLastSearchNodeCount();
+            totalMs += ms;
+            log.info("{} depth {}: {} ms, {} nodes, best move {}",
+                    FENS[i], DEPTHS[i], ms, ai.getLastSearchNodeCount(), Move.convertIntToMove(best.getMove()));
+        }
+        log.info("total nodes {}, {} ms, {} nodes/s", totalNodes, totalMs, (long) (totalNodes * 1000 / totalMs));
+    }
+
+    @Test
+    public void depthReachedInFixedTime() {
+        int totalDepth = 0;
+        for (String fen : FENS) {
+            Engine engine = new Engine();
+            engine.importBoardFromFen(fen);
+            AI ai = new AI(engine, 64, false, 1);
+
+            MoveAndScore best = ai.searchForTime(TIME_LIMIT_MS);
+
+            assertNotNull(best);
+            totalDepth += ai.getLastSearchDepth();
+            log.info("{} in {} ms: depth {}, {} nodes, best move {}",
+                    fen, TIME_LIMIT_MS, ai.getLastSearchDepth(), ai.getLastSearchNodeCount(), Move.convertIntToMove(best.getMove()));
+        }
+        log.info("average depth {}", (double) totalDepth / FENS.length);
+    }
+}
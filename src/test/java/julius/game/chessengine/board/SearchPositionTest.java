@@ -0,0 +1,164 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.engine.Engine;
+import julius.game.chessengine.engine.SearchPosition;
+import org.junit.jupiter.api.Test;
+
+import static julius.game.chessengine.board.MoveHelper.convertStringToIndex;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The search position must reach the same game states and scores as the engine it was copied from, apart from mate
+ * and stalemate, which it leaves to the search.
+ */
+public class SearchPositionTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            // Mate and stalemate in one
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1",
+            "7k/5Q2/8/8/8/8/8/6K1 w - - 0 1"
+    };
+
+    @Test
+    public void statesAndScoresMatchEngineToDepthThree() {
+        for (String fen : FENS) {
+            Engine engine = new Engine();
+            engine.importBoardFromFen(fen);
+            compareRecursively(engine, engine.createSearchPosition(), 3);
+        }
+    }
+
+    @Test
+    public void copyMatchesOriginal() {
+        Engine engine = new Engine();
+        engine.importBoardFromFen(FENS[1]);
+        SearchPosition position = engine.createSearchPosition();
+        position.performMove(engine.getAllLegalMoves().getMove(0));
+
+        SearchPosition copy = new SearchPosition(position);
+        assertEquals(position.getBoardStateHash(), copy.getBoardStateHash());
+        assertEquals(position.getScoreDifference(), copy.getScoreDifference());
+        assertEquals(position.getLastMove(), copy.getLastMove());
+
+        copy.undoLastMove();
+        assertEquals(engine.getBoardStateHash(), copy.getBoardStateHash());
+    }
+
+    private static final String[][] KNIGHT_MOVES = {{"g1", "f3"}, {"g8", "f6"}, {"f3", "g1"}, {"f6", "g8"}};
+
+    @Test
+    public void repetitionsOfTheGameCount() {
+        Engine engine = new Engine();
+        SearchPosition position = null;
+        for (int i = 0; i < 8; i++) {
+            if (i == 4) {
+                position = engine.createSearchPosition();
+            }
+            int move = findMove(engine, KNIGHT_MOVES[i % 4][0], KNIGHT_MOVES[i % 4][1]);
+            engine.performMove(move);
+            if (position != null) {
+                position.performMove(move);
+                assertEquals(engine.getGameState().isInStateDraw(), position.isInStateDraw(), "move " + i);
+            }
+        }
+        // The starting position for the third time
+        assertTrue(position.isInStateDraw());
+    }
+
+    @Test
+    public void repetitionsOfTheSearchAreDrawsAtOnce() {
+        Engine engine = new Engine();
+        SearchPosition position = engine.createSearchPosition();
+        for (int i = 0; i < 5; i++) {
+            int move = findMove(engine, KNIGHT_MOVES[i % 4][0], KNIGHT_MOVES[i % 4][1]);
+            engine.performMove(move);
+            position.performMove(move);
+            // The root is a position of the game, the position after the first move one of the search
+            assertEquals(i == 4, position.isInStateDraw(), "move " + i);
+            assertFalse(engine.getGameState().isInStateDraw(), "move " + i);
+        }
+
+        position.undoLastMove();
+        position.performNullMove();
+        assertFalse(position.isInStateDraw());
+    }
+
+    @Test
+    public void undoRestoresTheCheckOfThePosition() {
+        Engine engine = new Engine();
+        engine.importBoardFromFen("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        SearchPosition position = engine.createSearchPosition();
+
+        int check = findMove(engine, "a1", "a8");
+        engine.performMove(check);
+        position.performMove(check);
+        assertTrue(position.isInStateCheck());
+
+        // The search enters the position again after every reply
+        position.performMove(findMove(engine, "e8", "e7"));
+        position.undoLastMove();
+        assertTrue(position.isInStateCheck());
+
+        position.undoLastMove();
+        assertFalse(position.isInStateCheck());
+    }
+
+    @Test
+    public void fiftyMoveRule() {
+        String fen = "8/8/4k3/8/8/4K3/3P4/8 w - - 99 80";
+        assertEquals(99, FEN.translateFENtoBitBoard(fen).getHalfmoveClock());
+        Engine engine = new Engine();
+        engine.importBoardFromFen(fen);
+        SearchPosition position = engine.createSearchPosition();
+
+        int pawnMove = findMove(engine, "d2", "d4");
+        position.performMove(pawnMove);
+        assertFalse(position.isInStateDraw());
+        position.undoLastMove();
+
+        int kingMove = findMove(engine, "e3", "f3");
+        position.performMove(kingMove);
+        engine.performMove(kingMove);
+        assertTrue(position.isInStateDraw());
+        assertTrue(engine.getGameState().isInStateDraw());
+    }
+
+    private static int findMove(Engine engine, String from, String to) {
+        for (int move : engine.getAllLegalMoves().toArray()) {
+            if (MoveHelper.deriveFromIndex(move) == convertStringToIndex(from) && MoveHelper.deriveToIndex(move) == convertStringToIndex(to)) {
+                return move;
+            }
+        }
+        throw new IllegalArgumentException("No legal move " + from + to);
+    }
+
+    private void compareRecursively(Engine engine, SearchPosition position, int depth) {
+        assertEquals(engine.getBoardStateHash(), position.getBoardStateHash());
+        if (!position.hasLegalMove()) {
+            // Mate and stalemate are left to the search, the position only knows about the check
+            assertEquals(engine.getGameState().isInStateCheckMate(), position.isInStateCheck());
+            assertTrue(engine.getGameState().isGameOver());
+            return;
+        }
+        assertEquals(engine.getGameState().isInStateCheck(), position.isInStateCheck());
+        assertEquals(engine.getGameState().isInStateDraw(), position.isInStateDraw());
+        assertEquals(engine.getGameState().getScore().getScoreDifference(), position.getScoreDifference());
+        if (depth == 0 || engine.getGameState().isGameOver()) {
+            return;
+        }
+        for (int move : engine.getAllLegalMoves().toArray()) {
+            engine.performMove(move);
+            position.performMove(move);
+            compareRecursively(engine, position, depth - 1);
+            engine.undoLastMove();
+            position.undoLastMove();
+            assertEquals(engine.getGameState().getScore().getScoreDifference(), position.getScoreDifference());
+        }
+    }
+}
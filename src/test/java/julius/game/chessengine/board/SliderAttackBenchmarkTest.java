@@ -0,0 +1,80 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.helper.BishopHelper;
+import julius.game.chessengine.helper.RookHelper;
+import julius.game.chessengine.helper.SliderHelper;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Slider attack lookups through the per square arrays of BishopHelper and RookHelper against the flat table of
+ * SliderHelper, on the same random squares and occupancies. Results are collected in StatisticsSearch.txt.
+ * Tagged as benchmark, so it only runs on request, see pom.xml; MagicTest checks the attacks themselves.
+ */
+@Log4j2
+@Tag("benchmark")
+public class SliderAttackBenchmarkTest {
+
+    private static final int LOOKUPS = 1 << 16;
+    private static final int ROUNDS = 200;
+    private static final int RUNS = 10;
+
+    @Test
+    public void flatTableAgainstPerSquareArrays() {
+        BishopHelper bishopHelper = BishopHelper.getInstance();
+        RookHelper rookHelper = RookHelper.getInstance();
+        Random random = new Random(42);
+        int[] squares = new int[LOOKUPS];
+        long[] occupancies = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            squares[i] = random.nextInt(64);
+            occupancies[i] = random.nextLong() & random.nextLong();
+        }
+
+        long bestPerSquare = Long.MAX_VALUE;
+        long bestFlat = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long startTime = System.nanoTime();
+            long perSquare = perSquareLookups(bishopHelper, rookHelper, squares, occupancies);
+            bestPerSquare = Math.min(bestPerSquare, System.nanoTime() - startTime);
+
+            startTime = System.nanoTime();
+            long flat = flatLookups(squares, occupancies);
+            bestFlat = Math.min(bestFlat, System.nanoTime() - startTime);
+
+            assertEquals(perSquare, flat);
+        }
+        long lookups = 2L * LOOKUPS * ROUNDS;
+        log.info("per square arrays {} ns/lookup, flat table {} ns/lookup, {} table entries",
+                (double) bestPerSquare / lookups, (double) bestFlat / lookups, SliderHelper.tableSize());
+    }
+
+    private static long perSquareLookups(BishopHelper bishopHelper, RookHelper rookHelper, int[] squares, long[] occupancies) {
+        long sum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < LOOKUPS; i++) {
+                int square = squares[i];
+                long occupied = occupancies[i];
+                sum += bishopHelper.calculateMovesUsingBishopMagic(square, occupied & bishopHelper.bishopMasks[square]);
+                sum += rookHelper.calculateMovesUsingRookMagic(square, occupied & rookHelper.rookMasks[square]);
+            }
+        }
+        return sum;
+    }
+
+    private static long flatLookups(int[] squares, long[] occupancies) {
+        long sum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < LOOKUPS; i++) {
+                sum += SliderHelper.bishopAttacks(squares[i], occupancies[i]);
+                sum += SliderHelper.rookAttacks(squares[i], occupancies[i]);
+            }
+        }
+        return sum;
+    }
+}
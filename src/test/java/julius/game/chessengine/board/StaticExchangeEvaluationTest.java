@@ -0,0 +1,47 @@
+package julius.game.chessengine.board;
+
+import org.junit.jupiter.api.Test;
+
+import static julius.game.chessengine.board.MoveHelper.convertStringToIndex;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StaticExchangeEvaluationTest {
+
+    @Test
+    public void undefendedPieceIsWon() {
+        assertEquals(3000, see("4k3/8/8/3n4/8/8/8/3RK3 w - - 0 1", "d1", "d5"));
+    }
+
+    @Test
+    public void queenTakesPawnDefendedByPawn() {
+        assertEquals(-8000, see("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1", "d1", "d5"));
+    }
+
+    @Test
+    public void pawnTakesPawnDefendedByPawn() {
+        assertEquals(0, see("4k3/8/4p3/3p4/4P3/8/8/4K3 w - - 0 1", "e4", "d5"));
+    }
+
+    @Test
+    public void rookBehindRookJoinsTheExchange() {
+        assertEquals(1000, see("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2", "d5"));
+    }
+
+    @Test
+    public void kingDoesNotRecaptureIntoDefendedSquare() {
+        // Kxe2 would put the black king next to the white king
+        assertEquals(1000, see("8/8/8/8/8/3k4/4p3/4RK2 w - - 0 1", "e1", "e2"));
+    }
+
+    private static int see(String fen, String from, String to) {
+        BitBoard bitBoard = FEN.translateFENtoBitBoard(fen);
+        MoveList moves = bitBoard.generateLegalMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            if (MoveHelper.deriveFromIndex(move) == convertStringToIndex(from) && MoveHelper.deriveToIndex(move) == convertStringToIndex(to)) {
+                return bitBoard.staticExchangeEvaluation(move);
+            }
+        }
+        throw new IllegalArgumentException("No legal move " + from + to + " in " + fen);
+    }
+}
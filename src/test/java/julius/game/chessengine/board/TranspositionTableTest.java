@@ -0,0 +1,136 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.ai.AI;
+import julius.game.chessengine.ai.HeapTranspositionTable;
+import julius.game.chessengine.ai.NodeType;
+import julius.game.chessengine.ai.OffHeapTranspositionTable;
+import julius.game.chessengine.ai.TranspositionTable;
+import julius.game.chessengine.ai.TranspositionTableEntry;
+import julius.game.chessengine.engine.Engine;
+import julius.game.chessengine.utils.Score;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void failedResizeLeavesTablesOfTheOldSize() {
+        AI ai = new AI(new Engine(), 2, false, 1);
+        assertThrows(IllegalArgumentException.class, () -> ai.resizeTranspositionTable(0, false));
+        assertEquals(2, ai.getTranspositionTable().getSizeInMb());
+        assertEquals(1, ai.getCaptureTranspositionTable().getSizeInMb());
+
+        ai.resizeTranspositionTable(4, false);
+        assertEquals(4, ai.getTranspositionTable().getSizeInMb());
+        assertNotNull(ai.searchToDepth(2));
+    }
+
+    @Test
+    public void storeAndProbe() {
+        TranspositionTable table = new HeapTranspositionTable(1);
+        TranspositionTableEntry entry = new TranspositionTableEntry();
+        long key = 0x1234_5678_9ABC_DEF0L;
+
+        assertFalse(table.probe(key, entry));
+
+        table.store(key, 1500, 7, NodeType.LOWERBOUND, 38668);
+
+        assertTrue(table.probe(key, entry));
+        assertEquals(1500, entry.getScore());
+        assertEquals(7, entry.getDepth());
+        assertEquals(NodeType.LOWERBOUND, entry.getNodeType());
+        assertEquals(38668, entry.getBestMove());
+
+        // same bucket, different upper key bits -> miss
+        assertFalse(table.probe(key ^ 0xFFFF_0000_0000_0000L, entry));
+    }
+
+    @Test
+    public void deeperEntryOfCurrentSearchIsKept() {
+        TranspositionTable table = new HeapTranspositionTable(1);
+        TranspositionTableEntry entry = new TranspositionTableEntry();
+        long key = 42L << 40;
+
+        table.store(key, 2000, 6, NodeType.EXACT, 1);
+        table.store(key, -1000, 2, NodeType.UPPERBOUND, 2);
+        assertTrue(table.probe(key, entry));
+        assertEquals(6, entry.getDepth());
+
+        table.newSearch();
+        table.store(key, -1000, 2, NodeType.UPPERBOUND, -1);
+        assertTrue(table.probe(key, entry));
+        assertEquals(2, entry.getDepth());
+        assertEquals(1, entry.getBestMove()); // best move survives a store without one
+    }
+
+    @Test
+    public void fullBucketReplacesOldestShallowestEntry() {
+        TranspositionTable table = new HeapTranspositionTable(1);
+        TranspositionTableEntry entry = new TranspositionTableEntry();
+        long bucket = 5L;
+
+        for (int i = 1; i <= 4; i++) {
+            table.store(((long) i << 32) | bucket, i, 10 + i, NodeType.EXACT, i);
+        }
+        table.newSearch();
+        table.store((5L << 32) | bucket, 5, 1, NodeType.EXACT, 5);
+
+        assertTrue(table.probe((5L << 32) | bucket, entry));
+        assertFalse(table.probe((1L << 32) | bucket, entry));
+        assertTrue(table.probe((4L << 32) | bucket, entry));
+
+        table.clear();
+        assertFalse(table.probe((4L << 32) | bucket, entry));
+    }
+
+    @Test
+    public void offHeapTableBehavesLikeHeapTable() {
+        TranspositionTable heap = new HeapTranspositionTable(2);
+        TranspositionTable offHeap = new OffHeapTranspositionTable(2);
+        TranspositionTableEntry heapEntry = new TranspositionTableEntry();
+        TranspositionTableEntry offHeapEntry = new TranspositionTableEntry();
+
+        assertTrue(offHeap.isOffHeap());
+        assertEquals(heap.getMemoryUsageInBytes(), offHeap.getMemoryUsageInBytes());
+
+        Random random = new Random(7);
+        long[] keys = new long[100_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            int depth = random.nextInt(20);
+            heap.store(keys[i], i, depth, NodeType.EXACT, i);
+            offHeap.store(keys[i], i, depth, NodeType.EXACT, i);
+        }
+        for (long key : keys) {
+            boolean found = heap.probe(key, heapEntry);
+            assertEquals(found, offHeap.probe(key, offHeapEntry));
+            if (found) {
+                assertEquals(heapEntry.getBestMove(), offHeapEntry.getBestMove());
+                assertEquals(heapEntry.getDepth(), offHeapEntry.getDepth());
+            }
+        }
+        assertTrue(offHeap.getUsagePermille() > 0);
+
+        offHeap.clear();
+        assertEquals(0, offHeap.getUsagePermille());
+        assertFalse(offHeap.probe(keys[keys.length - 1], offHeapEntry));
+    }
+
+    @Test
+    public void scoresSurviveRoundTrip() {
+        TranspositionTable table = new HeapTranspositionTable(1);
+        TranspositionTableEntry entry = new TranspositionTableEntry();
+        int[] scores = {Integer.MIN_VALUE, Integer.MAX_VALUE, Score.MATE - 3, -Score.MATE + 7, 0, -123};
+
+        for (int i = 0; i < scores.length; i++) {
+            table.store(i, scores[i], 1, NodeType.EXACT, i);
+        }
+        for (int i = 0; i < scores.length; i++) {
+            assertTrue(table.probe(i, entry));
+            assertEquals(scores[i], entry.getScore());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package julius.game.chessengine.board;
+
+import julius.game.chessengine.engine.Engine;
+import julius.game.chessengine.engine.SearchPosition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import static julius.game.chessengine.board.MoveHelper.convertStringToIndex;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Undo takes the state a move cannot be taken back from out of the undo record of the board, so a move only has to
+ * name what moved where and 16 bits are enough to find it again in its position.
+ */
+public class UndoStateTest {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+
+    // Bits of the move int that undo used to read: captured piece, first king and rook move, en passant pawn
+    private static final int IRREVERSIBLE_MOVE_BITS = -1 << 21;
+
+    private final Deque<Integer> performedMoves = new ArrayDeque<>();
+
+    @Test
+    public void undoRestoresStateToDepthThree() {
+        for (String fen : FENS) {
+            verifyRecursively(FEN.translateFENtoBitBoard(fen), 3);
+        }
+    }
+
+    @Test
+    public void halfmoveClockCountsSinceCaptureOrPawnMove() {
+        BitBoard bitBoard = new BitBoard();
+        performMove(bitBoard, "g1", "f3");
+        performMove(bitBoard, "g8", "f6");
+        assertEquals(2, bitBoard.getHalfmoveClock());
+
+        bitBoard.performNullMove();
+        assertEquals(3, bitBoard.getHalfmoveClock());
+        bitBoard.undoNullMove();
+
+        performMove(bitBoard, "e2", "e4");
+        assertEquals(0, bitBoard.getHalfmoveClock());
+        performMove(bitBoard, "f6", "e4");
+        assertEquals(0, bitBoard.getHalfmoveClock());
+
+        bitBoard.undoMove(performedMoves.pop());
+        bitBoard.undoMove(performedMoves.pop());
+        assertEquals(2, bitBoard.getHalfmoveClock());
+    }
+
+    @Test
+    public void compactMovesNameOneLegalMove() {
+        for (String fen : FENS) {
+            Engine engine = new Engine();
+            engine.importBoardFromFen(fen);
+            SearchPosition position = engine.createSearchPosition();
+            MoveList moves = engine.getAllLegalMoves();
+            Set<Integer> compactMoves = new HashSet<>();
+            for (int i = 0; i < moves.size(); i++) {
+                int compactMove = MoveHelper.toCompactMove(moves.getMove(i));
+                assertTrue(compactMove >= 0 && compactMove < 1 << 16);
+                assertTrue(compactMoves.add(compactMove), "Two moves share " + compactMove + " in " + fen);
+                assertEquals(moves.getMove(i), position.findLegalMove(compactMove));
+            }
+            assertEquals(-1, position.findLegalMove(0xFFFF));
+        }
+    }
+
+    private void performMove(BitBoard bitBoard, String from, String to) {
+        int fromIndex = convertStringToIndex(from);
+        int toIndex = convertStringToIndex(to);
+        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            if (MoveHelper.deriveFromIndex(move) == fromIndex && MoveHelper.deriveToIndex(move) == toIndex) {
+                bitBoard.performMove(move);
+                performedMoves.push(move);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No move from " + from + " to " + to);
+    }
+
+    private void verifyRecursively(BitBoard bitBoard, int depth) {
+        if (depth == 0) {
+            return;
+        }
+        MoveList moves = bitBoard.getAllCurrentPossibleMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.getMove(i);
+            BitBoard before = new BitBoard(bitBoard);
+            bitBoard.performMove(move);
+            if (!bitBoard.isInCheck(MoveHelper.isWhitesMove(move))) {
+                verifyRecursively(bitBoard, depth - 1);
+            }
+            bitBoard.undoMove(move & ~IRREVERSIBLE_MOVE_BITS);
+            assertSameState(before, bitBoard);
+        }
+    }
+
+    private void assertSameState(BitBoard expected, BitBoard actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getBoardStateHash(), actual.getBoardStateHash());
+        assertEquals(expected.getLastMoveDoubleStepPawnIndex(), actual.getLastMoveDoubleStepPawnIndex());
+        assertEquals(expected.getHalfmoveClock(), actual.getHalfmoveClock());
+        assertEquals(expected.isWhiteKingHasCastled(), actual.isWhiteKingHasCastled());
+        assertEquals(expected.isBlackKingHasCastled(), actual.isBlackKingHasCastled());
+        assertEquals(expected.whitesTurn, actual.whitesTurn);
+    }
+}